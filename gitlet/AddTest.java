@@ -0,0 +1,33 @@
+package gitlet;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the expansion of the operands of add.
+ *  @author Riddhi Bagadiaa
+ */
+public class AddTest {
+
+    /** A glob or directory matching no working files is reported as
+     *  missing, like a file name that is, and stages nothing. */
+    @Test
+    public void noMatches() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.write("a.txt", "a\n");
+            repo.write("d/e/x.txt", "x\n");
+            repo.delete("d/e/x.txt");
+            assertEquals(MISSING, repo.run("add", "*.java"));
+            assertEquals(MISSING, repo.run("add", "d"));
+            assertEquals(MISSING, repo.run("add", "d/e/"));
+            assertEquals(MISSING, repo.run("add", "nothing"));
+            assertEquals("", repo.run("add", "*.txt"));
+            assertTrue(repo.run("status").contains(
+                    "=== Staged Files ===\na.txt\n\n"));
+        }
+    }
+
+    /** What add prints for an operand that stands for no files. */
+    private static final String MISSING = "File does not exist.\n";
+}
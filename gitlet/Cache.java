@@ -0,0 +1,148 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/** @author Riddhi Bagadiaa
+ * In-memory cache of things read from the repository, such as decoded
+ * commits and trees, by ID. Everything a Gitlet ID names is immutable, so
+ * nothing cached ever goes stale and the caches live as long as the
+ * process, serving repeated reads within a command and, in a Daemon,
+ * across commands. Each cache holds at most a budget of bytes, as
+ * estimated for each value when it is added, evicting the least recently
+ * used values to stay within it, and counts its hits and misses, which
+ * the cache-stats command prints. Values are shared between callers and
+ * must not be changed. */
+
+class Cache<K, V> {
+
+    /** A cache called NAME holding at most BUDGET bytes, the size of
+     *  each value being estimated by SIZE. */
+    Cache(String name, long budget, ToLongFunction<V> size) {
+        _name = name;
+        _budget = budget;
+        _size = size;
+        synchronized (CACHES) {
+            CACHES.add(this);
+        }
+    }
+
+    /** Returns the value for KEY, loading it with LOADER if it is not
+     *  cached. Loading happens outside the cache's lock, so that values
+     *  may be loaded in parallel. */
+    V get(K key, Function<K, V> loader) {
+        synchronized (this) {
+            Entry<V> entry = _entries.get(key);
+            if (entry != null) {
+                _hits += 1;
+                return entry._value;
+            }
+            _misses += 1;
+        }
+        V value = loader.apply(key);
+        long size = _size.applyAsLong(value);
+        if (size > _budget) {
+            return value;
+        }
+        synchronized (this) {
+            Entry<V> old = _entries.put(key, new Entry<>(value, size));
+            if (old != null) {
+                _bytes -= old._size;
+            }
+            _bytes += size;
+            Iterator<Entry<V>> eldest = _entries.values().iterator();
+            while (_bytes > _budget) {
+                _bytes -= eldest.next()._size;
+                eldest.remove();
+                _evictions += 1;
+            }
+        }
+        return value;
+    }
+
+    /** Returns a line describing this cache's use. */
+    synchronized String stats() {
+        long lookups = _hits + _misses;
+        return String.format("%s: %d entries, %d of %d bytes, %d hits,"
+                + " %d misses (%.1f%% hit), %d evictions", _name,
+                _entries.size(), _bytes, _budget, _hits, _misses,
+                lookups == 0 ? 0.0 : 100.0 * _hits / lookups, _evictions);
+    }
+
+    /** Runs the cache-stats command with ARGS, printing the use of every
+     *  cache in this process. Run by hand, that is only the use of the
+     *  command itself; a Daemon reports its use since it started. */
+    static void cacheStats(String... args) {
+        if (!Main.MAIN_FOLDER.exists()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        if (args.length != 1) {
+            throw Utils.error("Incorrect operands.");
+        }
+        List<Cache<?, ?>> caches;
+        synchronized (CACHES) {
+            caches = new ArrayList<>(CACHES);
+        }
+        if (caches.isEmpty()) {
+            System.out.println("No caches have been used.");
+        }
+        for (Cache<?, ?> cache : caches) {
+            System.out.println(cache.stats());
+        }
+    }
+
+    /** A cached VALUE of estimated SIZE bytes. */
+    private static class Entry<V> {
+        /** The VALUE, of SIZE bytes. */
+        Entry(V value, long size) {
+            _value = value;
+            _size = size;
+        }
+
+        /** The value. */
+        private final V _value;
+        /** Its estimated size in bytes. */
+        private final long _size;
+    }
+
+    /** Estimated size in bytes of an object's header, or of a map entry,
+     *  beyond its contents. */
+    static final int OVERHEAD = 48;
+
+    /** Returns the estimated size in bytes of the String S. */
+    static long size(String s) {
+        return s == null ? 0 : OVERHEAD + 2L * s.length();
+    }
+
+    /** Every cache made, in order. */
+    private static final List<Cache<?, ?>> CACHES = new ArrayList<>();
+
+    /** Name of the cache. */
+    private final String _name;
+
+    /** Most bytes held. */
+    private final long _budget;
+
+    /** Estimates the size of a value. */
+    private final ToLongFunction<V> _size;
+
+    /** Entries by key, least recently used first. */
+    private final LinkedHashMap<K, Entry<V>> _entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Estimated bytes held. */
+    private long _bytes;
+
+    /** Number of lookups that found their value. */
+    private long _hits;
+
+    /** Number of lookups that did not. */
+    private long _misses;
+
+    /** Number of values evicted. */
+    private long _evictions;
+}
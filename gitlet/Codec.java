@@ -0,0 +1,123 @@
+package gitlet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** @author Riddhi Bagadiaa
+ * Primitives of Gitlet's binary formats for commits and trees: unsigned
+ * varints of 7 bits per byte, least significant first; strings as a
+ * varint byte count followed by their UTF-8 bytes; and IDs as their 20
+ * raw bytes. Nothing is written but the values themselves. */
+
+class Codec {
+
+    /** Writes the non-negative VALUE to OUT as a varint. */
+    static void writeVarint(DataOutput out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative varint");
+        }
+        while (value >= MORE) {
+            out.writeByte((int) (value & LOW_BITS) | MORE);
+            value >>>= SHIFT;
+        }
+        out.writeByte((int) value);
+    }
+
+    /** Returns the varint read from IN. */
+    static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += SHIFT) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & LOW_BITS) << shift;
+            if ((b & MORE) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /** Writes S to OUT as a length-prefixed UTF-8 string. */
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /** Returns the length-prefixed UTF-8 string read from IN. */
+    static String readString(DataInput in) throws IOException {
+        long length = readVarint(in);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("malformed string");
+        }
+        byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Writes the SHA-1 ID to OUT as its raw bytes. */
+    static void writeID(DataOutput out, String id) throws IOException {
+        out.write(Utils.sha1Bytes(id));
+    }
+
+    /** Returns the SHA-1 ID whose raw bytes are read from IN. */
+    static String readID(DataInput in) throws IOException {
+        byte[] id = new byte[Utils.UID_LENGTH / 2];
+        in.readFully(id);
+        return Utils.sha1Hex(id);
+    }
+
+    /** Returns the varint read from IN, a buffer such as a mapped file,
+     *  at its position. */
+    static long readVarint(ByteBuffer in) {
+        try {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += SHIFT) {
+                int b = Byte.toUnsignedInt(in.get());
+                value |= (long) (b & LOW_BITS) << shift;
+                if ((b & MORE) == 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException excp) {
+            throw new IllegalArgumentException("truncated varint");
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /** Returns the length-prefixed UTF-8 string read from IN at its
+     *  position. */
+    static String readString(ByteBuffer in) {
+        long length = readVarint(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("malformed string");
+        }
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the SHA-1 ID whose raw bytes are read from IN at its
+     *  position. */
+    static String readID(ByteBuffer in) {
+        byte[] id = new byte[Utils.UID_LENGTH / 2];
+        try {
+            in.get(id);
+        } catch (BufferUnderflowException excp) {
+            throw new IllegalArgumentException("truncated ID");
+        }
+        return Utils.sha1Hex(id);
+    }
+
+    /** Bit marking a varint byte that is not the last. */
+    private static final int MORE = 0x80;
+
+    /** Value bits of a varint byte. */
+    private static final int LOW_BITS = 0x7f;
+
+    /** Number of value bits in a varint byte. */
+    private static final int SHIFT = 7;
+}
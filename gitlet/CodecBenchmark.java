@@ -0,0 +1,100 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.TreeMap;
+
+/** Microbenchmark of the binary formats of commits and trees against Java
+ *  serialization, which they replaced. It needs no repository; run it
+ *  with "java gitlet.CodecBenchmark [ITERATIONS]". Each case is run
+ *  ITERATIONS times, 200000 by default, once to warm up and once timed.
+ *  @author Riddhi Bagadiaa
+ */
+public class CodecBenchmark {
+
+    /** Runs the benchmark with ARGS. */
+    public static void main(String... args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0])
+            : ITERATIONS;
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = 0; i < FILES; i += 1) {
+            entries.put("file" + i + ".java", Utils.sha1("contents" + i));
+        }
+        byte[] tree = Tree.encode(entries);
+        byte[] serialized = Utils.serialize(entries);
+        byte[] commit = commitBytes();
+        Commit decoded = Commit.decode(new ByteArrayInputStream(commit));
+
+        System.out.printf("commit bytes %d%n", commit.length);
+        System.out.printf("%d-entry tree bytes %d, serialized %d%n", FILES,
+                tree.length, serialized.length);
+        for (int round = 0; round < 2; round += 1) {
+            boolean timed = round == 1;
+            time("commit encode", iterations, timed, decoded::encode);
+            time("commit decode", iterations, timed,
+                () -> Commit.decode(new ByteArrayInputStream(commit)));
+            time("tree encode", iterations / FILES, timed,
+                () -> Tree.encode(entries));
+            time("tree decode", iterations / FILES, timed,
+                () -> Tree.decode(tree));
+            time("tree deserialize", iterations / FILES, timed,
+                () -> deserialize(serialized));
+        }
+    }
+
+    /** Runs TASK N times, printing the mean time taken under NAME iff
+     *  TIMED. */
+    private static void time(String name, int n, boolean timed,
+                             Task task) throws Exception {
+        Object sink = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i += 1) {
+            sink = task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (timed && sink != null) {
+            System.out.printf("%-18s %8.2f us%n", name,
+                    elapsed / 1000.0 / n);
+        }
+    }
+
+    /** Returns the object serialized in BYTES. */
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /** Returns a merge commit in the commit format. */
+    private static byte[] commitBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeByte(3);
+        Codec.writeID(out, Utils.sha1("first parent"));
+        Codec.writeID(out, Utils.sha1("second parent"));
+        Codec.writeVarint(out, System.currentTimeMillis());
+        Codec.writeString(out, "Sat Oct 17 12:00:00 2026 +0000");
+        Codec.writeString(out, "Merged feature into master.");
+        Codec.writeString(out, "master");
+        Codec.writeID(out, Utils.sha1("tree"));
+        Codec.writeID(out, Utils.sha1("commit"));
+        return bytes.toByteArray();
+    }
+
+    /** A case to time. */
+    private interface Task {
+        /** Runs the case, returning its result. */
+        Object run() throws Exception;
+    }
+
+    /** Default number of iterations of each commit case. */
+    private static final int ITERATIONS = 200000;
+
+    /** Number of entries in the tree. */
+    private static final int FILES = 200;
+}
@@ -0,0 +1,112 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the binary formats of commits and trees.
+ *  @author Riddhi Bagadiaa
+ */
+public class CodecTest {
+
+    /** Varints, strings and IDs read back as written. */
+    @Test
+    public void primitivesRoundTrip() throws IOException {
+        long[] values = {0, 1, 127, 128, 300, Integer.MAX_VALUE,
+                         Long.MAX_VALUE};
+        String id = Utils.sha1("blob");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long v : values) {
+            Codec.writeVarint(out, v);
+        }
+        Codec.writeString(out, "D\u00fcr/\u00f1ame.txt");
+        Codec.writeID(out, id);
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        for (long v : values) {
+            assertEquals(v, Codec.readVarint(in));
+        }
+        assertEquals("D\u00fcr/\u00f1ame.txt", Codec.readString(in));
+        assertEquals(id, Codec.readID(in));
+        assertEquals(-1, in.read());
+    }
+
+    /** A tree reads back as written and is smaller than the same map
+     *  written by Java serialization. */
+    @Test
+    public void treeRoundTrip() {
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = 0; i < 100; i += 1) {
+            entries.put("file" + i + ".java", Utils.sha1("contents" + i));
+        }
+        entries.put("src/", Utils.sha1("subtree"));
+        byte[] encoded = Tree.encode(entries);
+        assertEquals(entries, Tree.decode(encoded));
+        assertTrue(encoded.length < Utils.serialize(entries).length);
+    }
+
+    /** A commit with no parent, one parent or two reads back as written,
+     *  each parent present exactly when its flag is set, and encodes to
+     *  the same bytes again. */
+    @Test
+    public void commitRoundTrip() throws IOException {
+        String first = Utils.sha1("first parent");
+        String second = Utils.sha1("second parent");
+        String[][] parents = {{null, null}, {first, null}, {first, second}};
+        for (String[] p : parents) {
+            byte[] encoded = commitBytes(p[0], p[1], 1L << 40);
+            Commit c = Commit.decode(new ByteArrayInputStream(encoded));
+            assertEquals(p[0], c.getParent());
+            assertEquals(p[1], c.getSecondParent());
+            assertEquals(1L << 40, c.getTime());
+            assertEquals("Thu Jan 1 00:00:00 1970 +0000", c.getTimeStamp());
+            assertEquals("Merged \u00fcber into master.", c.getMessage());
+            assertEquals("master", c.getBranch());
+            assertEquals(Utils.sha1("tree"), c.getTree());
+            assertEquals(Utils.sha1("commit"), c.getSHA1());
+            assertArrayEquals(encoded, c.encode());
+        }
+    }
+
+    /** Returns a commit in the commit format, with PARENT and SECONDPARENT,
+     *  either of which may be null, made at TIME. */
+    private static byte[] commitBytes(String parent, String secondParent,
+                                      long time) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeByte((parent == null ? 0 : 1)
+                | (secondParent == null ? 0 : 2));
+        if (parent != null) {
+            Codec.writeID(out, parent);
+        }
+        if (secondParent != null) {
+            Codec.writeID(out, secondParent);
+        }
+        Codec.writeVarint(out, time);
+        Codec.writeString(out, "Thu Jan 1 00:00:00 1970 +0000");
+        Codec.writeString(out, "Merged \u00fcber into master.");
+        Codec.writeString(out, "master");
+        Codec.writeID(out, Utils.sha1("tree"));
+        Codec.writeID(out, Utils.sha1("commit"));
+        return bytes.toByteArray();
+    }
+
+    /** Data in an unknown format is refused. */
+    @Test
+    public void unknownFormat() {
+        try {
+            Tree.decode(new byte[] {99, 0});
+            fail("decoded a tree of unknown format");
+        } catch (IllegalArgumentException excp) {
+            return;
+        }
+    }
+}
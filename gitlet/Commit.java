@@ -1,16 +1,30 @@
 package gitlet;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.Serializable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 /** @author Riddhi Bagadiaa
- * Commit class. */
+ * Commit class. A commit is stored in its own binary format, that of
+ * FORMAT: a flag byte telling which parents it has, the raw IDs of those
+ * parents, its time as a varint, its time stamp, log message and branch
+ * as strings, and the raw IDs of its root tree and of itself, all as
+ * written by Codec. */
 
 @SuppressWarnings("unchecked")
-public class Commit implements Serializable {
+public class Commit {
 
     /** Directory of all the commits. */
     static final File COMMITS_FOLDER = Utils.join(Main.MAIN_FOLDER, "COMMITS");
@@ -18,36 +32,186 @@ public class Commit implements Serializable {
     /** Initialising a commit with its LOG, PARENT,
      *  BRANCH, FILETOBLOB, SECONDPARENT. */
     public Commit(String log, String parent, String branch,
-                  HashMap<String, byte[]> fileToBlob, String secondParent) {
+                  HashMap<String, String> fileToBlob, String secondParent) {
         _logMessage = log;
         _parent = parent;
         _secondParent = secondParent;
+        _time = commitTime();
         _timeStamp = dateAndTime();
         _fileToBlob = fileToBlob;
+        _tree = Tree.write(fileToBlob);
         _branch = branch;
         _sha1 = makeSHA1();
     }
 
-    /** Returns the SHA1 ID of the commit object. */
+    /** A commit whose fields are yet to be decoded. */
+    private Commit() {
+    }
+
+    /** Returns the SHA1 ID of the commit object, which covers its time
+     *  stamp, parents, log message and root tree, so that commits with
+     *  different contents never share an ID. */
     private String makeSHA1() {
-        byte[] fileSet = Utils.serialize(_fileToBlob.keySet().toString());
-        if (_parent == null) {
-            return Utils.sha1(_timeStamp, _logMessage, fileSet);
+        ArrayList<Object> fields = new ArrayList<>();
+        fields.add(_timeStamp);
+        if (_parent != null) {
+            fields.add(_parent);
+        }
+        if (_secondParent != null) {
+            fields.add(_secondParent);
         }
-        return Utils.sha1(_timeStamp, _parent, _logMessage, fileSet);
+        fields.add(_logMessage);
+        fields.add(_tree);
+        return Utils.sha1(fields);
+    }
+
+    /** Returns the time of the commit object in milliseconds
+     *  since the epoch. */
+    private long commitTime() {
+        if (_logMessage.equals("initial commit") && _parent == null) {
+            return 0;
+        }
+        return System.currentTimeMillis();
     }
 
     /** Returns the date and time String of the commit object. */
     private String dateAndTime() {
         String pattern = "E MMM dd HH:mm:ss yyyy Z";
         SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+        return dateFormat.format(new Date(_time));
+    }
 
-        if (_logMessage.equals("initial commit") && _parent == null) {
-            Date commitdate = new Date();
-            commitdate.setTime(0);
-            return dateFormat.format(commitdate);
+    /** Returns the commit with the given SHA1, reading only its header,
+     *  and that only if it is not in the cache. */
+    static Commit read(String sha1) {
+        return CACHE.get(sha1, Commit::load).copy();
+    }
+
+    /** Returns the commit with the given SHA1, as stored. */
+    private static Commit load(String sha1) {
+        File file = file(sha1);
+        try {
+            if (file.isFile()) {
+                return decode(Compression.inflating(
+                        new FileInputStream(file)));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        InputStream in = Pack.open(sha1);
+        if (in == null) {
+            throw new IllegalArgumentException("no commit " + sha1);
+        }
+        return decode(in);
+    }
+
+    /** Returns the IDs of all commits, loose or packed, in order. The
+     *  shard directories are listed in parallel. */
+    static List<String> ids() {
+        TreeSet<String> ids = new TreeSet<>(Pack.ids(Pack.COMMIT));
+        File[] dirs = COMMITS_FOLDER.listFiles(File::isDirectory);
+        if (dirs != null) {
+            ids.addAll(Arrays.stream(dirs).parallel()
+                       .flatMap(dir -> Utils.plainFilenamesIn(dir).stream())
+                       .collect(Collectors.toList()));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /** Returns the commits with the given IDS, in the same order. They
+     *  are read and decoded in parallel, on the common fork-join pool,
+     *  whose idle workers steal from busy ones. */
+    static List<Commit> readAll(List<String> ids) {
+        return ids.parallelStream().map(Commit::read)
+               .collect(Collectors.toList());
+    }
+
+    /** Stores this commit in its file. */
+    void write() {
+        File file = file(_sha1);
+        file.getParentFile().mkdirs();
+        Compression.write(file, encode());
+    }
+
+    /** Returns this commit in the commit format. */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeByte((_parent == null ? 0 : HAS_PARENT)
+                    | (_secondParent == null ? 0 : HAS_SECOND_PARENT));
+            if (_parent != null) {
+                Codec.writeID(out, _parent);
+            }
+            if (_secondParent != null) {
+                Codec.writeID(out, _secondParent);
+            }
+            Codec.writeVarint(out, _time);
+            Codec.writeString(out, _timeStamp);
+            Codec.writeString(out, _logMessage);
+            Codec.writeString(out, _branch);
+            Codec.writeID(out, _tree);
+            Codec.writeID(out, _sha1);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Returns the commit read in the commit format from IN, which is
+     *  then closed. */
+    static Commit decode(InputStream in) {
+        try (DataInputStream data = new DataInputStream(in)) {
+            if (data.readUnsignedByte() != FORMAT) {
+                throw new IOException("unknown commit format");
+            }
+            Commit c = new Commit();
+            int flags = data.readUnsignedByte();
+            if ((flags & HAS_PARENT) != 0) {
+                c._parent = Codec.readID(data);
+            }
+            if ((flags & HAS_SECOND_PARENT) != 0) {
+                c._secondParent = Codec.readID(data);
+            }
+            c._time = Codec.readVarint(data);
+            c._timeStamp = Codec.readString(data);
+            c._logMessage = Codec.readString(data);
+            c._branch = Codec.readString(data);
+            c._tree = Codec.readID(data);
+            c._sha1 = Codec.readID(data);
+            return c;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
         }
-        return dateFormat.format(new Date());
+    }
+
+    /** Returns a copy of this commit's header, whose list of files is
+     *  loaded apart from this one's, so that a cached commit never holds
+     *  one. */
+    private Commit copy() {
+        Commit c = new Commit();
+        c._logMessage = _logMessage;
+        c._parent = _parent;
+        c._secondParent = _secondParent;
+        c._tree = _tree;
+        c._time = _time;
+        c._timeStamp = _timeStamp;
+        c._branch = _branch;
+        c._sha1 = _sha1;
+        return c;
+    }
+
+    /** Returns the estimated size in bytes of this commit's header. */
+    private long size() {
+        return Cache.OVERHEAD + Cache.size(_logMessage)
+            + Cache.size(_parent) + Cache.size(_secondParent)
+            + Cache.size(_tree) + Cache.size(_timeStamp)
+            + Cache.size(_branch) + Cache.size(_sha1);
+    }
+
+    /** Returns the file holding the commit with the given SHA1. */
+    static File file(String sha1) {
+        return ObjectStore.shard(COMMITS_FOLDER, sha1);
     }
 
     /** Returns the PARENT of the commit object. */
@@ -60,16 +224,31 @@ public class Commit implements Serializable {
         return _branch;
     }
 
-    /** Returns the FILE TO BLOB LIST of the commit object. */
-    public HashMap<String, byte[]> getFileToBlob() {
+    /** Returns the FILE TO BLOB LIST of the commit object, mapping
+     *  the path of each file to the ID of its contents in the ObjectStore.
+     *  The list is only read from the trees on first use. */
+    public HashMap<String, String> getFileToBlob() {
+        if (_fileToBlob == null) {
+            _fileToBlob = Tree.flatten(_tree);
+        }
         return _fileToBlob;
     }
 
+    /** Returns the ID of the root TREE of the commit. */
+    public String getTree() {
+        return _tree;
+    }
+
     /** Returns the SHA1 of the commit object. */
     public String getSHA1() {
         return _sha1;
     }
 
+    /** Returns the TIME of the commit object in milliseconds. */
+    public long getTime() {
+        return _time;
+    }
+
     /** Returns the DATE AND TIME STRING of the commit object. */
     public String getTimeStamp() {
         return _timeStamp;
@@ -86,6 +265,10 @@ public class Commit implements Serializable {
     }
 
 
+    /** Headers of commits read recently. */
+    private static final Cache<String, Commit> CACHE =
+            new Cache<>("commits", 8 << 20, Commit::size);
+
     /** Log message of the commit. */
     private String _logMessage;
 
@@ -95,8 +278,16 @@ public class Commit implements Serializable {
     /** Second parent message of the commit. */
     private String _secondParent;
 
-    /** Keeps track of all the files in the commit. */
-    private HashMap<String, byte[]> _fileToBlob;
+    /** Keeps track of all the files in the commit by blob ID. Not
+     *  written with the commit, so reading a commit only costs its header;
+     *  loaded from _tree on demand. */
+    private HashMap<String, String> _fileToBlob;
+
+    /** ObjectStore ID of the root tree of the commit. */
+    private String _tree;
+
+    /** Time of the commit in milliseconds since the epoch. */
+    private long _time;
 
     /**Time stamp of the commit. */
     private String _timeStamp;
@@ -106,4 +297,13 @@ public class Commit implements Serializable {
 
     /** SHA1 of the commit. */
     private String _sha1;
+
+    /** Version of the commit format written. */
+    private static final int FORMAT = 1;
+
+    /** Flag of a commit with a parent. */
+    private static final int HAS_PARENT = 1;
+
+    /** Flag of a commit with a second parent. */
+    private static final int HAS_SECOND_PARENT = 2;
 }
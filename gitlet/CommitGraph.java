@@ -0,0 +1,465 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** @author Riddhi Bagadiaa
+ * Commit-graph cache. Every commit gets a fixed-size entry holding its
+ * SHA1, the indexes of its parents, its generation number and its time.
+ * An entry's index is its position among the entries, parents coming
+ * before their children, so walking ancestry is a matter of reading
+ * integers out of one memory-mapped file rather than opening a file per
+ * commit.
+ *
+ * .gitlet/commit-graph holds MAGIC, the number of entries, the entries
+ * and then their indexes in order of SHA1, which is binary-searched to
+ * find a commit's entry, so opening the graph costs the same however
+ * many commits there are. Entries of commits made since it was written
+ * go in .gitlet/commit-graph.journal, after the number of entries of the
+ * graph they follow, and are read in full. Once the journal holds
+ * JOURNAL_LIMIT entries the graph is written anew with them, keeping
+ * their indexes. Both files are only ever replaced whole, by writing a
+ * file of this process's own and renaming it over the old one, so other
+ * processes that have mapped or read them keep a consistent copy. */
+
+class CommitGraph {
+
+    /** File holding the commit graph. */
+    static final File GRAPH_FILE =
+            Utils.join(Main.MAIN_FOLDER, "commit-graph");
+
+    /** File holding the entries not yet in GRAPH_FILE. */
+    static final File JOURNAL_FILE =
+            Utils.join(Main.MAIN_FOLDER, "commit-graph.journal");
+
+    /** Index standing for a missing parent. */
+    static final int NONE = -1;
+
+    /** Size of an entry: SHA1, two parents, generation and time. */
+    private static final int ENTRY_SIZE = 20 + 4 + 4 + 4 + 8;
+
+    /** Offset of the first parent within an entry. */
+    private static final int PARENT = 20;
+
+    /** Offset of the second parent within an entry. */
+    private static final int SECOND_PARENT = 24;
+
+    /** Offset of the generation number within an entry. */
+    private static final int GENERATION = 28;
+
+    /** Offset of the time within an entry. */
+    private static final int TIME = 32;
+
+    /** Length of the header of the graph: MAGIC and the number of
+     *  entries. */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /** Length of the header of the journal: the number of entries of the
+     *  graph it follows. */
+    private static final int JOURNAL_HEADER_SIZE = Integer.BYTES;
+
+    /** Number of journalled entries at which they are written into the
+     *  graph. */
+    private static final int JOURNAL_LIMIT = 1024;
+
+    /** Marks a commit graph. */
+    private static final int MAGIC = 0x47475248;
+
+    /** Appends an entry for commit C, whose parents must already be in
+     *  the graph. Does nothing if C is already there. */
+    static void append(Commit c) {
+        load();
+        if (find(c.getSHA1()) != NONE) {
+            return;
+        }
+        int parent = entryIndex(c.getParent());
+        int secondParent = entryIndex(c.getSecondParent());
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        putEntry(entry, c, parent, secondParent,
+                1 + Math.max(generation(parent), generation(secondParent)));
+        ByteBuffer journal = ByteBuffer.allocate(JOURNAL_HEADER_SIZE
+                + (_size - _count + 1) * ENTRY_SIZE);
+        journal.putInt(_count);
+        byte[] bytes = new byte[ENTRY_SIZE];
+        for (int i = _count; i < _size; i += 1) {
+            _journal.get(offset(i), bytes);
+            journal.put(bytes);
+        }
+        journal.put(entry.array());
+        replace(JOURNAL_FILE, journal.array());
+        invalidate();
+        load();
+        if (_size - _count >= JOURNAL_LIMIT) {
+            ByteBuffer entries = ByteBuffer.allocate(_size * ENTRY_SIZE);
+            for (int i = 0; i < _size; i += 1) {
+                buffer(i).get(offset(i), bytes);
+                entries.put(bytes);
+            }
+            write(entries, _size);
+        }
+    }
+
+    /** Returns the number of commits in the graph. */
+    static int size() {
+        load();
+        return _size;
+    }
+
+    /** Returns the index of the commit with the given SHA1, reading the
+     *  graph again and then rebuilding it if it is not there. */
+    static int indexOf(String sha1) {
+        load();
+        int index = find(sha1);
+        if (index == NONE) {
+            invalidate();
+            load();
+            index = find(sha1);
+        }
+        if (index == NONE) {
+            rebuild();
+            load();
+            index = find(sha1);
+            if (index == NONE) {
+                throw Utils.error("Commit %s is not in the graph.", sha1);
+            }
+        }
+        return index;
+    }
+
+    /** Returns the SHA1 of the commit at INDEX. */
+    static String sha1(int index) {
+        byte[] sha1 = new byte[Utils.UID_LENGTH / 2];
+        buffer(index).get(offset(index), sha1);
+        return Utils.sha1Hex(sha1);
+    }
+
+    /** Returns the index of the parent of the commit at INDEX, or NONE. */
+    static int parent(int index) {
+        return buffer(index).getInt(offset(index) + PARENT);
+    }
+
+    /** Returns the index of the second parent of the commit at INDEX,
+     *  or NONE. */
+    static int secondParent(int index) {
+        return buffer(index).getInt(offset(index) + SECOND_PARENT);
+    }
+
+    /** Returns the generation number of the commit at INDEX: one more
+     *  than the largest generation of its parents, the initial commit
+     *  having generation 1. Returns 0 for NONE. */
+    static int generation(int index) {
+        if (index == NONE) {
+            return 0;
+        }
+        return buffer(index).getInt(offset(index) + GENERATION);
+    }
+
+    /** Returns the time of the commit at INDEX in milliseconds. */
+    static long time(int index) {
+        return buffer(index).getLong(offset(index) + TIME);
+    }
+
+    /** Returns the index of the split point of the commits at CURRENT and
+     *  GIVEN, or NONE if they have no common ancestor. The split point is
+     *  the common ancestor reached from CURRENT along the fewest parent
+     *  links, preferring first parents on ties.
+     *
+     *  CURRENT's ancestors are visited breadth first. GIVEN's ancestors
+     *  are painted lazily in order of decreasing generation: a commit can
+     *  only be reached from GIVEN through commits of greater generation, so
+     *  once every such commit is painted, whether it is painted decides if
+     *  it is an ancestor of GIVEN. Each commit is visited at most once by
+     *  either walk, so this takes time linear in the number of commits. */
+    static int mergeBase(int current, int given) {
+        boolean[] ofGiven = new boolean[size()];
+        PriorityQueue<Integer> painting = new PriorityQueue<>(
+            (a, b) -> Integer.compare(generation(b), generation(a)));
+        ofGiven[given] = true;
+        painting.add(given);
+
+        boolean[] seen = new boolean[size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        seen[current] = true;
+        queue.add(current);
+        while (!queue.isEmpty()) {
+            int commit = queue.poll();
+            while (!painting.isEmpty()
+                    && generation(painting.peek()) > generation(commit)) {
+                int painted = painting.poll();
+                for (int p : new int[] {parent(painted),
+                                        secondParent(painted)}) {
+                    if (p != NONE && !ofGiven[p]) {
+                        ofGiven[p] = true;
+                        painting.add(p);
+                    }
+                }
+            }
+            if (ofGiven[commit]) {
+                return commit;
+            }
+            for (int p : new int[] {parent(commit), secondParent(commit)}) {
+                if (p != NONE && !seen[p]) {
+                    seen[p] = true;
+                    queue.add(p);
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** Forgets the graph read so far, so that it is read again when
+     *  next needed. */
+    static void invalidate() {
+        _graph = null;
+        _journal = null;
+        _journalIndexes = null;
+    }
+
+    /** Rewrites the graph from the commits on disk, parents first. */
+    static void rebuild() {
+        HashMap<String, Commit> commits = new HashMap<>();
+        for (Commit c : Commit.readAll(Commit.ids())) {
+            commits.put(c.getSHA1(), c);
+        }
+        List<Commit> ordered = new ArrayList<>();
+        HashMap<String, Boolean> done = new HashMap<>();
+        for (String sha1 : commits.keySet()) {
+            order(sha1, commits, done, ordered);
+        }
+        HashMap<String, Integer> indexes = new HashMap<>();
+        int[] generations = new int[ordered.size()];
+        ByteBuffer entries = ByteBuffer.allocate(ordered.size() * ENTRY_SIZE);
+        for (Commit c : ordered) {
+            int index = indexes.size();
+            int parent = c.getParent() == null ? NONE
+                : indexes.get(c.getParent());
+            int secondParent = c.getSecondParent() == null ? NONE
+                : indexes.get(c.getSecondParent());
+            generations[index] = 1 + Math.max(
+                    parent == NONE ? 0 : generations[parent],
+                    secondParent == NONE ? 0 : generations[secondParent]);
+            putEntry(entries, c, parent, secondParent, generations[index]);
+            indexes.put(c.getSHA1(), index);
+        }
+        write(entries, ordered.size());
+    }
+
+    /** Adds the commit with the given SHA1 among COMMITS to ORDERED after
+     *  all its ancestors, using DONE to skip commits already added. Walks
+     *  with an explicit stack so that long histories cannot overflow. */
+    private static void order(String sha1, HashMap<String, Commit> commits,
+                              HashMap<String, Boolean> done,
+                              List<Commit> ordered) {
+        ArrayList<String> stack = new ArrayList<>();
+        stack.add(sha1);
+        while (!stack.isEmpty()) {
+            String top = stack.get(stack.size() - 1);
+            if (done.containsKey(top)) {
+                stack.remove(stack.size() - 1);
+                continue;
+            }
+            Commit c = commits.get(top);
+            boolean ready = true;
+            for (String p : new String[] {c.getParent(),
+                                          c.getSecondParent()}) {
+                if (p != null && !done.containsKey(p)) {
+                    stack.add(p);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                done.put(top, true);
+                ordered.add(c);
+                stack.remove(stack.size() - 1);
+            }
+        }
+    }
+
+    /** Puts the entry of commit C, with the parents at PARENT and
+     *  SECONDPARENT and the given GENERATION, into ENTRIES. */
+    private static void putEntry(ByteBuffer entries, Commit c, int parent,
+                                 int secondParent, int generation) {
+        entries.put(Utils.sha1Bytes(c.getSHA1()));
+        entries.putInt(parent);
+        entries.putInt(secondParent);
+        entries.putInt(generation);
+        entries.putLong(c.getTime());
+    }
+
+    /** Replaces the graph and the journal with a graph holding the COUNT
+     *  entries in ENTRIES, in order. */
+    private static void write(ByteBuffer entries, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(
+                entries.array(), a * ENTRY_SIZE, a * ENTRY_SIZE + PARENT,
+                entries.array(), b * ENTRY_SIZE, b * ENTRY_SIZE + PARENT));
+        ByteBuffer sorted = ByteBuffer.allocate(count * Integer.BYTES);
+        for (int i : order) {
+            sorted.putInt(i);
+        }
+        replace(GRAPH_FILE, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC)
+                .putInt(count).array(), entries.array(), sorted.array());
+        JOURNAL_FILE.delete();
+        invalidate();
+    }
+
+    /** Replaces FILE with one holding the concatenation of PARTS, written
+     *  to a file of this process's own and renamed over FILE, so that
+     *  other processes reading FILE see either all of it or none. */
+    private static void replace(File file, byte[]... parts) {
+        File temp = Utils.join(Main.MAIN_FOLDER, file.getName() + "."
+                + ProcessHandle.current().pid() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the index of the commit with the given SHA1, or NONE if
+     *  SHA1 is null. Its entry must be in the graph. */
+    private static int entryIndex(String sha1) {
+        return sha1 == null ? NONE : indexOf(sha1);
+    }
+
+    /** Returns the index of the commit with the given SHA1, or NONE if it
+     *  is not in the graph read. */
+    private static int find(String sha1) {
+        byte[] key = Utils.sha1Bytes(sha1);
+        int lo = 0;
+        int hi = _count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int index = _graph.getInt(HEADER_SIZE + _count * ENTRY_SIZE
+                    + mid * Integer.BYTES);
+            int cmp = compare(index, key);
+            if (cmp == 0) {
+                return index;
+            } else if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return _journalIndexes.getOrDefault(sha1, NONE);
+    }
+
+    /** Returns the order of the SHA1 of the entry of the graph at INDEX
+     *  relative to the raw ID KEY. */
+    private static int compare(int index, byte[] key) {
+        int start = offset(index);
+        for (int k = 0; k < key.length; k += 1) {
+            int cmp = Byte.compareUnsigned(_graph.get(start + k), key[k]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the buffer holding the entry at INDEX. */
+    private static ByteBuffer buffer(int index) {
+        return index < _count ? _graph : _journal;
+    }
+
+    /** Returns the offset of the entry at INDEX in its buffer. */
+    private static int offset(int index) {
+        if (index < _count) {
+            return HEADER_SIZE + index * ENTRY_SIZE;
+        }
+        return JOURNAL_HEADER_SIZE + (index - _journalBase) * ENTRY_SIZE;
+    }
+
+    /** Maps the graph and reads the journal if that has not been done
+     *  yet, building the graph first if it is missing or was written in
+     *  an older format. A journal that does not follow on from the graph
+     *  is left out, as are its entries the graph already holds. */
+    private static void load() {
+        if (_graph != null) {
+            return;
+        }
+        if (!GRAPH_FILE.exists()) {
+            rebuild();
+        }
+        try (FileChannel channel = FileChannel.open(GRAPH_FILE.toPath(),
+                StandardOpenOption.READ)) {
+            _graph = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (_graph.capacity() < HEADER_SIZE || _graph.getInt(0) != MAGIC) {
+            rebuild();
+            load();
+            return;
+        }
+        _count = _graph.getInt(Integer.BYTES);
+        _size = _count;
+        _journalIndexes = new HashMap<>();
+        if (!JOURNAL_FILE.exists()) {
+            return;
+        }
+        _journal = ByteBuffer.wrap(Utils.readContents(JOURNAL_FILE));
+        if (_journal.capacity() < JOURNAL_HEADER_SIZE) {
+            _journal = null;
+            return;
+        }
+        _journalBase = _journal.getInt(0);
+        _journalSize = (_journal.capacity() - JOURNAL_HEADER_SIZE)
+                / ENTRY_SIZE;
+        if (_journalBase > _count) {
+            _journal = null;
+            return;
+        }
+        _size = Math.max(_count, _journalBase + _journalSize);
+        for (int i = _count; i < _size; i += 1) {
+            _journalIndexes.put(sha1(i), i);
+        }
+    }
+
+    /** The mapped graph file, or null if not yet read. */
+    private static MappedByteBuffer _graph;
+
+    /** Number of entries in the graph file. */
+    private static int _count;
+
+    /** Number of entries in the graph and the journal. */
+    private static int _size;
+
+    /** Contents of the journal, or null if there is none to read. */
+    private static ByteBuffer _journal;
+
+    /** Number of entries of the graph the journal follows. */
+    private static int _journalBase;
+
+    /** Number of entries in the journal. */
+    private static int _journalSize;
+
+    /** Index of each journalled commit by SHA1. */
+    private static HashMap<String, Integer> _journalIndexes;
+}
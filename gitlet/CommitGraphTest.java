@@ -0,0 +1,55 @@
+package gitlet;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the split points found by CommitGraph.mergeBase, through the
+ *  merges they decide.
+ *  @author Riddhi Bagadiaa
+ */
+public class CommitGraphTest {
+
+    /** A branch merged twice is merged the second time from its head at
+     *  the first merge, which the current branch reaches only through the
+     *  second parent of the merge commit. Were the split point the
+     *  initial fork instead, the file both branches added would
+     *  conflict. */
+    @Test
+    public void secondParent() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.commit("f", "1\n", "c1");
+            repo.run("branch", "b");
+            repo.commit("f", "m\n", "c2");
+            repo.run("checkout", "b");
+            repo.commit("g", "g1\n", "c3");
+            repo.run("checkout", "master");
+            assertEquals("", repo.run("merge", "b"));
+            repo.run("checkout", "b");
+            repo.commit("g", "g2\n", "c4");
+            repo.run("checkout", "master");
+            assertEquals("", repo.run("merge", "b"));
+            assertEquals("m\n", repo.read("f"));
+            assertEquals("g2\n", repo.read("g"));
+        }
+    }
+
+    /** A branch whose head is an ancestor of the other's is found to be
+     *  the split point, either way round. */
+    @Test
+    public void ancestors() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.commit("f", "1\n", "c1");
+            repo.run("branch", "b");
+            String c2 = repo.commit("f", "2\n", "c2");
+            assertEquals("Given branch is an ancestor of the current"
+                    + " branch.\n", repo.run("merge", "b"));
+            repo.run("checkout", "b");
+            assertEquals("Current branch fast-forwarded.\n",
+                    repo.run("merge", "master"));
+            assertEquals(c2, repo.head());
+            assertEquals("2\n", repo.read("f"));
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/** @author Riddhi Bagadiaa
+ * Sorted index of commit IDs, by which abbreviated IDs are resolved.
+ * .gitlet/commit-index holds MAGIC, the number of IDs and then the raw
+ * 20-byte IDs in order; it is memory-mapped and binary-searched, so a
+ * prefix of any length is resolved by reading a handful of pages however
+ * many commits there are. Commits made since the index was written are
+ * appended, unsorted, to .gitlet/commit-index.journal, which is searched
+ * in full and merged into the index once it holds JOURNAL_LIMIT IDs. An
+ * ID cut short by a crash is ignored, and cut off before the next is
+ * appended, so that later IDs stay in line. */
+
+class CommitIndex {
+
+    /** File holding the sorted IDs. */
+    static final File INDEX_FILE =
+            Utils.join(Main.MAIN_FOLDER, "commit-index");
+
+    /** File holding the IDs not yet merged into INDEX_FILE. */
+    static final File JOURNAL_FILE =
+            Utils.join(Main.MAIN_FOLDER, "commit-index.journal");
+
+    /** Records the commit with the given SHA1. */
+    static void add(String sha1) {
+        if (find(sha1).contains(sha1)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(JOURNAL_FILE.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long end = channel.size() / SHA1_SIZE * SHA1_SIZE;
+            channel.truncate(end);
+            ByteBuffer id = ByteBuffer.wrap(Utils.sha1Bytes(sha1));
+            while (id.hasRemaining()) {
+                channel.write(id, end + id.position());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _journal.add(sha1);
+        if (_journal.size() >= JOURNAL_LIMIT) {
+            write(merged());
+            JOURNAL_FILE.delete();
+            invalidate();
+        }
+    }
+
+    /** Returns the full ID of the one commit whose ID starts with PREFIX.
+     *  Reports an error if there is no such commit or more than one. */
+    static String resolve(String prefix) {
+        List<String> matches = find(prefix);
+        if (matches.isEmpty()) {
+            throw Utils.error("No commit with that id exists.");
+        }
+        if (matches.size() > 1) {
+            throw Utils.error("Commit id %s is ambiguous.", prefix);
+        }
+        return matches.get(0);
+    }
+
+    /** Returns up to two IDs of commits starting with PREFIX: enough to
+     *  tell whether it is missing, unique or ambiguous. */
+    static List<String> find(String prefix) {
+        ArrayList<String> matches = new ArrayList<>();
+        if (prefix.isEmpty() || prefix.length() > Utils.UID_LENGTH) {
+            return matches;
+        }
+        int[] digits = new int[prefix.length()];
+        for (int k = 0; k < digits.length; k += 1) {
+            digits[k] = Character.digit(prefix.charAt(k), HEX);
+            if (digits[k] == -1 || Character.isUpperCase(prefix.charAt(k))) {
+                return matches;
+            }
+        }
+        load();
+        int lo = 0;
+        int hi = _count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, digits) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < _count && matches.size() < 2
+                 && compare(i, digits) == 0; i += 1) {
+            matches.add(id(i));
+        }
+        for (String sha1 : _journal.tailSet(prefix)) {
+            if (!sha1.startsWith(prefix) || matches.size() >= 2) {
+                break;
+            }
+            if (!matches.contains(sha1)) {
+                matches.add(sha1);
+            }
+        }
+        return matches;
+    }
+
+    /** Rewrites the index from the commits on disk. */
+    static void rebuild() {
+        write(Commit.ids());
+        JOURNAL_FILE.delete();
+        invalidate();
+    }
+
+    /** Forgets the index read so far, so that it is read again when next
+     *  needed. */
+    static void invalidate() {
+        _index = null;
+        _journal = null;
+    }
+
+    /** Returns the order of the first DIGITS.length hex digits of the ID
+     *  at I relative to DIGITS. */
+    private static int compare(int i, int[] digits) {
+        int start = HEADER_SIZE + i * SHA1_SIZE;
+        for (int k = 0; k < digits.length; k += 1) {
+            int b = Byte.toUnsignedInt(_index.get(start + k / 2));
+            int digit = k % 2 == 0 ? b >>> 4 : b & 0xf;
+            if (digit != digits[k]) {
+                return digit - digits[k];
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the ID at I. */
+    private static String id(int i) {
+        byte[] id = new byte[SHA1_SIZE];
+        _index.get(HEADER_SIZE + i * SHA1_SIZE, id);
+        return Utils.sha1Hex(id);
+    }
+
+    /** Returns the IDs of the index and the journal, in order. */
+    private static List<String> merged() {
+        ArrayList<String> ids = new ArrayList<>(_count + _journal.size());
+        int i = 0;
+        for (String sha1 : _journal) {
+            while (i < _count && id(i).compareTo(sha1) < 0) {
+                ids.add(id(i));
+                i += 1;
+            }
+            if (i < _count && id(i).equals(sha1)) {
+                continue;
+            }
+            ids.add(sha1);
+        }
+        for (; i < _count; i += 1) {
+            ids.add(id(i));
+        }
+        return ids;
+    }
+
+    /** Replaces INDEX_FILE with one holding IDS, which are in order. */
+    private static void write(List<String> ids) {
+        File temp = Utils.join(Main.MAIN_FOLDER, "commit-index."
+                + ProcessHandle.current().pid() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(ids.size());
+            for (String sha1 : ids) {
+                out.write(Utils.sha1Bytes(sha1));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), INDEX_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Maps the index and reads the journal if that has not been done
+     *  yet, building the index first if it is missing. */
+    private static void load() {
+        if (_index != null) {
+            return;
+        }
+        if (!INDEX_FILE.exists()) {
+            rebuild();
+        }
+        try (FileChannel channel = FileChannel.open(INDEX_FILE.toPath(),
+                StandardOpenOption.READ)) {
+            _index = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (_index.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("bad commit index");
+        }
+        _count = _index.getInt(Integer.BYTES);
+        _journal = new TreeSet<>();
+        if (JOURNAL_FILE.exists()) {
+            byte[] journal = Utils.readContents(JOURNAL_FILE);
+            byte[] id = new byte[SHA1_SIZE];
+            for (int k = 0; k + SHA1_SIZE <= journal.length;
+                 k += SHA1_SIZE) {
+                System.arraycopy(journal, k, id, 0, SHA1_SIZE);
+                _journal.add(Utils.sha1Hex(id));
+            }
+        }
+    }
+
+    /** Marks a commit index. */
+    private static final int MAGIC = 0x47434958;
+
+    /** Length of a raw ID. */
+    private static final int SHA1_SIZE = Utils.UID_LENGTH / 2;
+
+    /** Length of the header of the index. */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /** Number of journalled IDs at which they are merged into the
+     *  index. */
+    private static final int JOURNAL_LIMIT = 1024;
+
+    /** Radix of an ID. */
+    private static final int HEX = 16;
+
+    /** The mapped index file, or null if not yet read. */
+    private static MappedByteBuffer _index;
+
+    /** Number of IDs in the index. */
+    private static int _count;
+
+    /** IDs in the journal. */
+    private static TreeSet<String> _journal;
+}
@@ -0,0 +1,103 @@
+package gitlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the resolution of abbreviated IDs by CommitIndex.
+ *  @author Riddhi Bagadiaa
+ */
+public class CommitIndexTest {
+
+    /** Of eighteen commits, some two share their first digit, which is
+     *  then ambiguous, while a digit no commit starts with names none, and
+     *  a full or unique prefix names its commit. Half the commits are in
+     *  the sorted index and half in its journal. */
+    @Test
+    public void prefixes() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.runAll(commits(repo, 0, COMMITS / 2));
+            repo.delete(".gitlet/commit-index");
+            repo.runAll(commits(repo, COMMITS / 2, COMMITS));
+            TreeMap<Character, TreeSet<String>> byDigit = new TreeMap<>();
+            for (String line : repo.run("global-log").split("\n")) {
+                if (line.startsWith("commit ")) {
+                    String id = line.substring("commit ".length());
+                    byDigit.computeIfAbsent(id.charAt(0),
+                        d -> new TreeSet<>()).add(id);
+                }
+            }
+            assertEquals(COMMITS + 1, byDigit.values().stream()
+                    .mapToInt(TreeSet::size).sum());
+
+            boolean[] checked = new boolean[3];
+            for (char d : "0123456789abcdef".toCharArray()) {
+                TreeSet<String> ids = byDigit.get(d);
+                int kind = ids == null ? 0 : Math.min(ids.size(), 2);
+                if (checked[kind]) {
+                    continue;
+                }
+                checked[kind] = true;
+                String prefix = Character.toString(d);
+                String output = repo.run("diff", prefix, prefix);
+                if (kind == 0) {
+                    assertEquals("No commit with that id exists.\n",
+                            output);
+                } else if (kind == 2) {
+                    assertEquals("Commit id " + prefix + " is ambiguous.\n",
+                            output);
+                    for (String id : ids) {
+                        assertEquals("", repo.run("diff", id, id));
+                    }
+                } else {
+                    assertEquals("", output);
+                }
+            }
+            assertTrue(checked[2]);
+            assertEquals("No commit with that id exists.\n",
+                    repo.run("diff", "A", "A"));
+        }
+    }
+
+    /** An ID in the journal cut short by a crash loses only its own
+     *  commit, which fsck restores, and IDs appended after it are read
+     *  whole. */
+    @Test
+    public void tornJournal() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.commit("f", "1\n", "c1");
+            String c2 = repo.commit("f", "2\n", "c2");
+            repo.truncate(".gitlet/commit-index.journal", 5);
+            String c3 = repo.commit("f", "3\n", "c3");
+            String c4 = repo.commit("f", "4\n", "c4");
+            assertEquals("", repo.run("diff", c3, c3));
+            assertEquals("", repo.run("diff", c4.substring(0, 10), c4));
+            assertEquals("No commit with that id exists.\n",
+                    repo.run("diff", c2, c2));
+            repo.run("fsck");
+            assertEquals("", repo.run("diff", c2, c2));
+        }
+    }
+
+    /** Returns the commands adding and committing files FROM to TO of
+     *  REPO, which are written first. */
+    private static List<String[]> commits(TempRepository repo, int from,
+                                          int to) throws IOException {
+        List<String[]> commands = new ArrayList<>();
+        for (int i = from; i < to; i += 1) {
+            repo.write("f" + i, i + "\n");
+            commands.add(new String[] {"add", "f" + i});
+            commands.add(new String[] {"commit", "c" + i});
+        }
+        return commands;
+    }
+
+    /** Number of commits made, besides the initial one: enough that two
+     *  must share a first digit. */
+    private static final int COMMITS = 17;
+}
@@ -0,0 +1,53 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/** @author Riddhi Bagadiaa
+ * zlib (Deflate) compression of the files Gitlet stores, at the level set
+ * by core.compression in the repository's Config. Files are inflated as
+ * a stream, so a reader only ever decompresses as much as it reads. */
+
+class Compression {
+
+    /** Returns a stream that compresses what is written to it into OUT,
+     *  closing OUT when closed. */
+    static OutputStream deflating(OutputStream out) {
+        Deflater deflater = new Deflater(Config.compressionLevel());
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /** Returns a stream of the decompressed contents of IN. */
+    static InputStream inflating(InputStream in) {
+        return new InflaterInputStream(new BufferedInputStream(in,
+                BUFFER_SIZE));
+    }
+
+    /** Writes CONTENTS to FILE, compressed, creating or overwriting it. */
+    static void write(File file, byte[] contents) {
+        try (OutputStream out = deflating(new FileOutputStream(file))) {
+            out.write(contents);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Size of the buffers compressed data is streamed through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+}
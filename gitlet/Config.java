@@ -0,0 +1,140 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+/** @author Riddhi Bagadiaa
+ * Per-repository settings, kept as "key=value" lines in .gitlet/config:
+ * core.compression, the Deflater level from 0 (none) to 9 (smallest), or
+ * -1 for the default, that objects and commits are stored with; and
+ * core.fanout, the number of leading hex digits of an ID that name the
+ * directory its loose object or commit is kept in, which only the fanout
+ * command may change. */
+
+class Config {
+
+    /** File holding the settings. */
+    static final File CONFIG_FILE = Utils.join(Main.MAIN_FOLDER, "config");
+
+    /** Key of the compression level. */
+    static final String COMPRESSION = "core.compression";
+
+    /** Key of the fan-out. */
+    static final String FAN_OUT = "core.fanout";
+
+    /** Fan-out of new repositories: 256 directories. */
+    static final int DEFAULT_FAN_OUT = 2;
+
+    /** Largest fan-out allowed. */
+    static final int MAX_FAN_OUT = 3;
+
+    /** Runs the config command with ARGS: "config KEY" prints the value
+     *  of KEY and "config KEY VALUE" sets it. */
+    static void config(String... args) {
+        if (!Main.MAIN_FOLDER.exists()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        if (args.length != 2 && args.length != 3) {
+            throw Utils.error("Incorrect operands.");
+        }
+        if (!args[1].equals(COMPRESSION) && !args[1].equals(FAN_OUT)) {
+            throw Utils.error("No such setting exists.");
+        }
+        if (args.length == 2) {
+            System.out.println(args[1].equals(COMPRESSION)
+                    ? compressionLevel() : fanOut());
+            return;
+        }
+        if (args[1].equals(FAN_OUT)) {
+            throw Utils.error("Use the fanout command to change %s.",
+                    FAN_OUT);
+        }
+        int level;
+        try {
+            level = Integer.parseInt(args[2]);
+        } catch (NumberFormatException excp) {
+            level = Integer.MIN_VALUE;
+        }
+        if (level < Deflater.DEFAULT_COMPRESSION
+                || level > Deflater.BEST_COMPRESSION) {
+            throw Utils.error("Compression level must be -1 to 9.");
+        }
+        set(COMPRESSION, Integer.toString(level));
+    }
+
+    /** Returns the level that objects are compressed with. */
+    static int compressionLevel() {
+        String level = settings().getProperty(COMPRESSION);
+        if (level == null) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+        return Integer.parseInt(level);
+    }
+
+    /** Returns the number of hex digits that name a shard directory. A
+     *  repository without one was made before loose objects were sharded,
+     *  and is refused. */
+    static int fanOut() {
+        String width = settings().getProperty(FAN_OUT);
+        if (width == null) {
+            throw Utils.error(Main.UNSUPPORTED_FORMAT);
+        }
+        return Integer.parseInt(width);
+    }
+
+    /** Records that shard directories are named by WIDTH hex digits. */
+    static void setFanOut(int width) {
+        set(FAN_OUT, Integer.toString(width));
+    }
+
+    /** Sets KEY to VALUE and writes the settings back to CONFIG_FILE. */
+    private static void set(String key, String value) {
+        settings().setProperty(key, value);
+        File temp = Utils.join(Main.MAIN_FOLDER, "config.tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            _settings.store(out, null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), CONFIG_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the settings, reading CONFIG_FILE if not done yet. */
+    private static Properties settings() {
+        if (_settings == null) {
+            Properties settings = new Properties();
+            if (CONFIG_FILE.exists()) {
+                try (InputStream in = new FileInputStream(CONFIG_FILE)) {
+                    settings.load(in);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+            _settings = settings;
+        }
+        return _settings;
+    }
+
+    /** Forgets the settings read so far, so that they are read again when
+     *  next needed. */
+    static void invalidate() {
+        _settings = null;
+    }
+
+    /** Settings read from CONFIG_FILE, or null if not yet read. */
+    private static Properties _settings;
+}
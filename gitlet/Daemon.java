@@ -0,0 +1,189 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+
+/** @author Riddhi Bagadiaa
+ * Long-lived Gitlet process. "daemon" serves the repository in the
+ * current directory over the Unix domain socket .gitlet/daemon.sock, so
+ * that HEAD, the current branch, the head commit and the commit graph
+ * stay in memory between commands and no JVM has to start per command.
+ *
+ * A request is the command's arguments, each followed by a NUL byte,
+ * after which the client shuts down its side of the connection. The
+ * daemon answers with the command's output and closes the connection.
+ * java gitlet.Main forwards to a running daemon by itself, and scripts
+ * can skip the JVM entirely with, e.g.,
+ *     printf 'status\0' | nc -UN .gitlet/daemon.sock
+ * All cached state is dropped whenever anything in .gitlet changes. */
+
+class Daemon {
+
+    /** Socket the daemon listens on. */
+    static final File SOCKET = Utils.join(Main.MAIN_FOLDER, "daemon.sock");
+
+    /** Runs the daemon command with ARGS: "daemon" serves the repository
+     *  until "daemon stop" is run. */
+    static void daemon(String... args) {
+        if (!Main.MAIN_FOLDER.exists()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        if (args.length == 2 && args[1].equals("stop")) {
+            if (!forward(args)) {
+                throw Utils.error("No daemon is running.");
+            }
+        } else if (args.length == 1) {
+            if (forward("daemon", "ping")) {
+                throw Utils.error("A daemon is already running.");
+            }
+            serve();
+        } else {
+            throw Utils.error("Incorrect operands.");
+        }
+    }
+
+    /** Sends ARGS to the daemon serving this repository and copies its
+     *  answer to System.out. Returns false if no daemon is running. */
+    static boolean forward(String... args) {
+        if (!SOCKET.exists()) {
+            return false;
+        }
+        try (SocketChannel channel = SocketChannel.open(
+                UnixDomainSocketAddress.of(SOCKET.toPath()))) {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            for (String arg : args) {
+                request.write(arg.getBytes(StandardCharsets.UTF_8));
+                request.write(0);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(request.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.shutdownOutput();
+            Channels.newInputStream(channel).transferTo(System.out);
+            System.out.flush();
+            return true;
+        } catch (IOException excp) {
+            SOCKET.delete();
+            return false;
+        }
+    }
+
+    /** Answers requests on SOCKET, one at a time, until told to stop. */
+    private static void serve() {
+        SOCKET.delete();
+        PrintStream console = System.out;
+        try (ServerSocketChannel server =
+                     ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             WatchService watcher =
+                     FileSystems.getDefault().newWatchService()) {
+            server.bind(UnixDomainSocketAddress.of(SOCKET.toPath()));
+            SOCKET.deleteOnExit();
+            Main.MAIN_FOLDER.toPath().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            boolean serving = true;
+            while (serving) {
+                try (SocketChannel client = server.accept()) {
+                    String[] args = readRequest(client);
+                    dropStaleState(watcher);
+                    PrintStream out = new PrintStream(new BufferedOutputStream(
+                            Channels.newOutputStream(client)),
+                            false, StandardCharsets.UTF_8);
+                    serving = answer(args, out, console);
+                    out.flush();
+                } catch (IOException excp) {
+                    Repository.invalidate();
+                    Index.invalidate();
+                }
+            }
+        } catch (IOException excp) {
+            throw Utils.error("Cannot start daemon: %s", excp.getMessage());
+        } finally {
+            SOCKET.delete();
+        }
+    }
+
+    /** Runs the command in ARGS with its output going to OUT instead of
+     *  CONSOLE. Returns false if the daemon should stop. */
+    private static boolean answer(String[] args, PrintStream out,
+                                  PrintStream console) {
+        if (args.length == 2 && args[0].equals("daemon")) {
+            if (args[1].equals("stop")) {
+                out.println("Daemon stopped.");
+                return false;
+            }
+            return true;
+        }
+        System.setOut(out);
+        try {
+            Main.run(args);
+        } catch (RuntimeException excp) {
+            out.println(excp.getMessage());
+            Repository.invalidate();
+            Index.invalidate();
+        } finally {
+            System.setOut(console);
+        }
+        return true;
+    }
+
+    /** Returns the arguments sent by CLIENT. */
+    private static String[] readRequest(SocketChannel client)
+        throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (client.read(buffer) != -1) {
+            buffer.flip();
+            request.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        }
+        List<String> args = new ArrayList<>();
+        byte[] bytes = request.toByteArray();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i += 1) {
+            if (bytes[i] == 0) {
+                args.add(new String(bytes, start, i - start,
+                        StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /** Drops all cached repository state if WATCHER has seen .gitlet
+     *  change since the last request. */
+    private static void dropStaleState(WatchService watcher) {
+        boolean changed = false;
+        for (WatchKey key = watcher.poll(); key != null;
+             key = watcher.poll()) {
+            key.pollEvents();
+            key.reset();
+            changed = true;
+        }
+        if (changed) {
+            Repository.invalidate();
+            Index.invalidate();
+        }
+    }
+
+    /** Size of the buffer requests are read through. */
+    private static final int BUFFER_SIZE = 4096;
+}
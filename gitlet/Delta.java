@@ -0,0 +1,144 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** @author Riddhi Bagadiaa
+ * Binary deltas between two versions of an object. A delta is the length
+ * of the target followed by a list of instructions that build it: COPY a
+ * run of bytes from the base, or INSERT bytes held in the delta itself.
+ * Matches are found by indexing the base in BLOCK-byte blocks and rolling
+ * a hash of the same width over the target. */
+
+class Delta {
+
+    /** Returns a delta that turns BASE into TARGET. */
+    static byte[] create(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(target.length);
+            int pending = 0;
+            int i = 0;
+            int h = target.length >= BLOCK ? hash(target, 0) : 0;
+            while (i + BLOCK <= target.length) {
+                Integer j = blocks.get(h);
+                if (j != null && Arrays.equals(base, j, j + BLOCK,
+                        target, i, i + BLOCK)) {
+                    int start = i;
+                    int from = j;
+                    while (start > pending && from > 0
+                           && target[start - 1] == base[from - 1]) {
+                        start -= 1;
+                        from -= 1;
+                    }
+                    int end = i + BLOCK;
+                    int to = j + BLOCK;
+                    while (end < target.length && to < base.length
+                           && target[end] == base[to]) {
+                        end += 1;
+                        to += 1;
+                    }
+                    insert(out, target, pending, start);
+                    out.writeByte(COPY);
+                    out.writeInt(from);
+                    out.writeInt(end - start);
+                    pending = end;
+                    i = end;
+                    if (i + BLOCK <= target.length) {
+                        h = hash(target, i);
+                    }
+                } else {
+                    if (i + BLOCK < target.length) {
+                        h = (h - target[i] * TOP_POWER) * PRIME
+                            + target[i + BLOCK];
+                    }
+                    i += 1;
+                }
+            }
+            insert(out, target, pending, target.length);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Returns the result of applying DELTA to BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(delta))) {
+            byte[] result = new byte[in.readInt()];
+            int pos = 0;
+            while (pos < result.length) {
+                int op = in.readByte();
+                if (op == COPY) {
+                    int from = in.readInt();
+                    int length = in.readInt();
+                    System.arraycopy(base, from, result, pos, length);
+                    pos += length;
+                } else {
+                    int length = in.readInt();
+                    in.readFully(result, pos, length);
+                    pos += length;
+                }
+            }
+            return result;
+        } catch (IOException | IndexOutOfBoundsException excp) {
+            throw new IllegalArgumentException("corrupt delta");
+        }
+    }
+
+    /** Writes an instruction to OUT inserting TARGET[START .. END), if
+     *  that is not empty. */
+    private static void insert(DataOutputStream out, byte[] target,
+                               int start, int end) throws IOException {
+        if (start < end) {
+            out.writeByte(INSERT);
+            out.writeInt(end - start);
+            out.write(target, start, end - start);
+        }
+    }
+
+    /** Returns the hash of the BLOCK bytes of DATA starting at START. */
+    private static int hash(byte[] data, int start) {
+        int h = 0;
+        for (int k = start; k < start + BLOCK; k += 1) {
+            h = h * PRIME + data[k];
+        }
+        return h;
+    }
+
+    /** Instruction copying bytes from the base. */
+    private static final int COPY = 1;
+
+    /** Instruction inserting literal bytes. */
+    private static final int INSERT = 2;
+
+    /** Width of the blocks matched between base and target. */
+    private static final int BLOCK = 16;
+
+    /** Multiplier of the rolling hash. */
+    private static final int PRIME = 31;
+
+    /** PRIME to the power BLOCK - 1, the weight of a block's first
+     *  byte in its hash. */
+    private static final int TOP_POWER = topPower();
+
+    /** Returns PRIME to the power BLOCK - 1. */
+    private static int topPower() {
+        int power = 1;
+        for (int k = 1; k < BLOCK; k += 1) {
+            power *= PRIME;
+        }
+        return power;
+    }
+}
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the binary deltas of Delta.
+ *  @author Riddhi Bagadiaa
+ */
+public class DeltaTest {
+
+    /** Applying a delta to its base gives back the target, for random
+     *  edits of random data. */
+    @Test
+    public void randomEdits() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            byte[] base = new byte[random.nextInt(2000)];
+            random.nextBytes(base);
+            byte[] target = edit(random, base);
+            assertArrayEquals(target,
+                    Delta.apply(base, Delta.create(base, target)));
+        }
+    }
+
+    /** Empty and short bases and targets, shorter than a block, round
+     *  trip. */
+    @Test
+    public void shortData() {
+        byte[] empty = new byte[0];
+        byte[] small = {1, 2, 3};
+        assertArrayEquals(small, Delta.apply(empty,
+                Delta.create(empty, small)));
+        assertArrayEquals(empty, Delta.apply(small,
+                Delta.create(small, empty)));
+        assertArrayEquals(small, Delta.apply(small,
+                Delta.create(small, small)));
+    }
+
+    /** A small change to a large object gives a small delta. */
+    @Test
+    public void smallDelta() {
+        Random random = new Random(2);
+        byte[] base = new byte[100000];
+        random.nextBytes(base);
+        byte[] target = Arrays.copyOf(base, base.length + 10);
+        target[50000] += 1;
+        byte[] delta = Delta.create(base, target);
+        assertTrue(delta.length < 200);
+        assertArrayEquals(target, Delta.apply(base, delta));
+    }
+
+    /** A delta that does not fit its base is refused. */
+    @Test
+    public void corruptDelta() {
+        byte[] base = new byte[100];
+        byte[] target = Arrays.copyOf(base, 150);
+        byte[] delta = Delta.create(base, target);
+        try {
+            Delta.apply(new byte[10], delta);
+            fail("applied a delta to the wrong base");
+        } catch (IllegalArgumentException excp) {
+            return;
+        }
+    }
+
+    /** Returns BASE with a few random runs of bytes replaced, inserted or
+     *  deleted, using RANDOM. */
+    private static byte[] edit(Random random, byte[] base) {
+        byte[] data = base.clone();
+        for (int n = random.nextInt(5); n > 0; n -= 1) {
+            int at = random.nextInt(data.length + 1);
+            int cut = random.nextInt(Math.min(50, data.length - at) + 1);
+            byte[] run = new byte[random.nextInt(50)];
+            random.nextBytes(run);
+            byte[] next = new byte[data.length - cut + run.length];
+            System.arraycopy(data, 0, next, 0, at);
+            System.arraycopy(run, 0, next, at, run.length);
+            System.arraycopy(data, at + cut, next, at + run.length,
+                    data.length - at - cut);
+            data = next;
+        }
+        return data;
+    }
+
+    /** Number of random pairs of base and target. */
+    private static final int TRIALS = 500;
+}
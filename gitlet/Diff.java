@@ -0,0 +1,547 @@
+package gitlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** @author Riddhi Bagadiaa
+ * The diff command, which shows what changed between two versions of the
+ * files: "diff" compares the head commit with the working directory,
+ * "diff C" compares commit C with it, and "diff C1 C2" compares two
+ * commits, each commit given by a possibly abbreviated ID. "--stat"
+ * before them prints a summary of the lines each file gained and lost
+ * instead of the changes themselves.
+ *
+ * Files are first compared by ObjectStore ID alone, commits through
+ * Tree.diff, which skips every subtree the two commits share, and the
+ * working directory through the stat cache of the Index, so files that
+ * did not change are never read. The lines of the files that did are
+ * compared by Myers's O(ND) algorithm in its linear-space form, which
+ * finds the middle of the shortest edit script and recurses on both
+ * sides of it, after setting aside the lines the files begin and end
+ * with in common. Output is in the unified format, with CONTEXT lines of
+ * context, and goes through one large buffer. */
+
+class Diff {
+
+    /** Runs the diff command with ARGS. */
+    static void diff(String... args) {
+        if (!Main.MAIN_FOLDER.exists()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        boolean stat = args.length > 1 && args[1].equals("--stat");
+        int first = stat ? 2 : 1;
+        if (args.length - first > 2) {
+            throw Utils.error("Incorrect operands.");
+        }
+        TreeMap<String, String[]> changes;
+        boolean working = args.length - first < 2;
+        if (!working) {
+            changes = Tree.diff(commit(args[first]).getTree(),
+                    commit(args[first + 1]).getTree());
+        } else if (args.length == first) {
+            changes = againstWorking(Repository.headCommit());
+        } else {
+            changes = againstWorking(commit(args[first]));
+        }
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out),
+                BUFFER_SIZE);
+        try {
+            if (stat) {
+                printStat(changes, working, out);
+            } else {
+                for (Map.Entry<String, String[]> e : changes.entrySet()) {
+                    printPatch(e.getKey(), e.getValue(), working, out);
+                }
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the commit whose possibly abbreviated ID is ID. */
+    private static Commit commit(String id) {
+        return Commit.read(CommitIndex.resolve(id));
+    }
+
+    /** Returns the files that differ between commit C and the working
+     *  directory, by path, each with the ID of its contents in C and of
+     *  its working contents, either null if it is missing there. Only the
+     *  files of C and those staged for addition are compared. */
+    private static TreeMap<String, String[]> againstWorking(Commit c) {
+        HashMap<String, String> committed = c.getFileToBlob();
+        TreeSet<String> names = new TreeSet<>(committed.keySet());
+        names.addAll(Index.staged().keySet());
+        TreeMap<String, String[]> changes = new TreeMap<>();
+        for (String name : names) {
+            String from = committed.get(name);
+            String to = Index.hash(name);
+            if (from == null ? to != null : !from.equals(to)) {
+                changes.put(name, new String[] {from, to});
+            }
+        }
+        return changes;
+    }
+
+    /** Prints the changes to the file NAME, whose contents had the IDs in
+     *  IDS before and after, to OUT, reading the later contents from the
+     *  working directory if WORKING. */
+    private static void printPatch(String name, String[] ids,
+                                   boolean working, Writer out)
+        throws IOException {
+        out.write("diff --git a/" + name + " b/" + name + "\n");
+        if (ids[0] == null) {
+            out.write("new file\n");
+        } else if (ids[1] == null) {
+            out.write("deleted file\n");
+        }
+        Text before = text(ids[0], name, false);
+        Text after = text(ids[1], name, working);
+        if (before.isBinary() || after.isBinary()) {
+            out.write("Binary files " + label("a/", name, ids[0]) + " and "
+                    + label("b/", name, ids[1]) + " differ\n");
+            return;
+        }
+        out.write("--- " + label("a/", name, ids[0]) + "\n");
+        out.write("+++ " + label("b/", name, ids[1]) + "\n");
+        boolean[][] edits = edits(before, after);
+        for (int[] hunk : hunks(edits[0], edits[1])) {
+            printHunk(hunk, before, after, edits[0], edits[1], out);
+        }
+    }
+
+    /** Returns the name under which the file NAME, whose contents have
+     *  ID, is shown, with PREFIX, or /dev/null if ID is null. */
+    private static String label(String prefix, String name, String id) {
+        return id == null ? "/dev/null" : prefix + name;
+    }
+
+    /** Prints the lines of BEFORE and AFTER between the bounds in HUNK,
+     *  with the lines DELETED from BEFORE and INSERTED into AFTER marked,
+     *  to OUT. */
+    private static void printHunk(int[] hunk, Text before, Text after,
+                                  boolean[] deleted, boolean[] inserted,
+                                  Writer out) throws IOException {
+        int i = hunk[0];
+        int j = hunk[2];
+        out.write("@@ -" + range(hunk[0], hunk[1]) + " +"
+                + range(hunk[2], hunk[3]) + " @@\n");
+        while (i < hunk[1] || j < hunk[3]) {
+            if (i < hunk[1] && deleted[i]) {
+                printLine('-', before, i, out);
+                i += 1;
+            } else if (j < hunk[3] && inserted[j]) {
+                printLine('+', after, j, out);
+                j += 1;
+            } else {
+                printLine(' ', before, i, out);
+                i += 1;
+                j += 1;
+            }
+        }
+    }
+
+    /** Prints line I of TEXT, marked by MARK, to OUT. */
+    private static void printLine(char mark, Text text, int i, Writer out)
+        throws IOException {
+        out.write(mark);
+        out.write(text.line(i));
+        out.write('\n');
+        if (i == text.size() - 1 && !text.endsWithNewline()) {
+            out.write("\\ No newline at end of file\n");
+        }
+    }
+
+    /** Returns the unified-format range of the lines from START to END,
+     *  counted from 0. */
+    private static String range(int start, int end) {
+        int count = end - start;
+        int line = count == 0 ? start : start + 1;
+        return count == 1 ? Integer.toString(line) : line + "," + count;
+    }
+
+    /** Returns the hunks of the changes DELETED and INSERTED, each as the
+     *  start and end of its lines in the old text and in the new one,
+     *  including up to CONTEXT unchanged lines on either side. Changes
+     *  whose contexts would meet share a hunk. */
+    private static List<int[]> hunks(boolean[] deleted, boolean[] inserted) {
+        ArrayList<int[]> hunks = new ArrayList<>();
+        int[] hunk = null;
+        int i = 0;
+        int j = 0;
+        int endI = 0;
+        int endJ = 0;
+        while (i < deleted.length || j < inserted.length) {
+            boolean delete = i < deleted.length && deleted[i];
+            boolean insert = !delete && j < inserted.length && inserted[j];
+            if (!delete && !insert) {
+                i += 1;
+                j += 1;
+                continue;
+            }
+            if (hunk != null && i - endI > 2 * CONTEXT) {
+                close(hunk, endI, endJ, deleted, inserted);
+                hunk = null;
+            }
+            if (hunk == null) {
+                int back = Math.min(CONTEXT, Math.min(i, j));
+                hunk = new int[] {i - back, 0, j - back, 0};
+                hunks.add(hunk);
+            }
+            if (delete) {
+                i += 1;
+            } else {
+                j += 1;
+            }
+            endI = i;
+            endJ = j;
+        }
+        if (hunk != null) {
+            close(hunk, endI, endJ, deleted, inserted);
+        }
+        return hunks;
+    }
+
+    /** Ends HUNK, whose last change ends at line ENDI of the old text and
+     *  ENDJ of the new one, after up to CONTEXT further lines, of which
+     *  the texts, with lines DELETED and INSERTED, have as many. */
+    private static void close(int[] hunk, int endI, int endJ,
+                              boolean[] deleted, boolean[] inserted) {
+        int after = Math.min(CONTEXT, Math.min(deleted.length - endI,
+                inserted.length - endJ));
+        hunk[1] = endI + after;
+        hunk[3] = endJ + after;
+    }
+
+    /** Prints a summary of CHANGES to OUT: for each file the number of
+     *  lines it gained and lost, drawn as a bar, and then the totals,
+     *  reading the later contents from the working directory if
+     *  WORKING. */
+    private static void printStat(TreeMap<String, String[]> changes,
+                                  boolean working, Writer out)
+        throws IOException {
+        TreeMap<String, int[]> counts = new TreeMap<>();
+        int width = 0;
+        int most = 0;
+        for (Map.Entry<String, String[]> e : changes.entrySet()) {
+            String name = e.getKey();
+            Text before = text(e.getValue()[0], name, false);
+            Text after = text(e.getValue()[1], name, working);
+            int[] count = null;
+            if (!before.isBinary() && !after.isBinary()) {
+                boolean[][] edits = edits(before, after);
+                count = new int[] {trues(edits[1]), trues(edits[0])};
+                most = Math.max(most, count[0] + count[1]);
+            }
+            counts.put(name, count);
+            width = Math.max(width, name.length());
+        }
+        int digits = Math.max(Integer.toString(most).length(), 3);
+        int insertions = 0;
+        int deletions = 0;
+        for (Map.Entry<String, int[]> e : counts.entrySet()) {
+            out.write(" " + pad(e.getKey(), width) + " | ");
+            int[] count = e.getValue();
+            if (count == null) {
+                out.write(String.format("%" + digits + "s\n", "Bin"));
+                continue;
+            }
+            int plus = count[0];
+            int minus = count[1];
+            if (most > BAR) {
+                plus = (int) Math.ceil((double) plus * BAR / most);
+                minus = (int) Math.ceil((double) minus * BAR / most);
+            }
+            out.write(String.format("%" + digits + "d ", count[0] + count[1])
+                    + "+".repeat(plus)
+                    + "-".repeat(minus) + "\n");
+            insertions += count[0];
+            deletions += count[1];
+        }
+        out.write(" " + counts.size() + " file"
+                + (counts.size() == 1 ? "" : "s") + " changed, "
+                + insertions + " insertion" + (insertions == 1 ? "" : "s")
+                + "(+), " + deletions + " deletion"
+                + (deletions == 1 ? "" : "s") + "(-)\n");
+    }
+
+    /** Returns NAME padded with spaces to WIDTH characters. */
+    private static String pad(String name, int width) {
+        return name + " ".repeat(width - name.length());
+    }
+
+    /** Returns the number of true elements of FLAGS. */
+    private static int trues(boolean[] flags) {
+        int n = 0;
+        for (boolean flag : flags) {
+            if (flag) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Returns the contents with the given ID of the file NAME, which are
+     *  read from the working directory if WORKING and from the
+     *  ObjectStore otherwise. A null ID stands for no contents. */
+    private static Text text(String id, String name, boolean working) {
+        if (id == null) {
+            return new Text("");
+        }
+        if (working) {
+            return new Text(Utils.readContentsAsString(
+                    Utils.join(Main.CWD, name)));
+        }
+        return new Text(ObjectStore.readAsString(id));
+    }
+
+    /** Returns the shortest edit script turning BEFORE into AFTER, as two
+     *  arrays marking the lines deleted from BEFORE and those inserted
+     *  into AFTER. */
+    static boolean[][] edits(Text before, Text after) {
+        HashMap<String, Integer> numbers = new HashMap<>();
+        return edits(before.numbered(numbers), after.numbered(numbers));
+    }
+
+    /** Returns the shortest edit script turning the lines A into the
+     *  lines B, given as numbers, as two arrays marking the lines deleted
+     *  from A and those inserted into B. */
+    static boolean[][] edits(int[] a, int[] b) {
+        boolean[] deleted = new boolean[a.length];
+        boolean[] inserted = new boolean[b.length];
+        compare(a, 0, a.length, b, 0, b.length, deleted, inserted);
+        return new boolean[][] {deleted, inserted};
+    }
+
+    /** Marks in DELETED and INSERTED the lines of A from ALO to AHI and of
+     *  B from BLO to BHI that a shortest edit script turning the one range
+     *  into the other deletes and inserts. */
+    private static void compare(int[] a, int aLo, int aHi,
+                                int[] b, int bLo, int bHi,
+                                boolean[] deleted, boolean[] inserted) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            Arrays.fill(deleted, aLo, aHi, true);
+            Arrays.fill(inserted, bLo, bHi, true);
+            return;
+        }
+        int[] middle = middle(a, aLo, aHi, b, bLo, bHi);
+        if (middle == null) {
+            Arrays.fill(deleted, aLo, aHi, true);
+            Arrays.fill(inserted, bLo, bHi, true);
+            return;
+        }
+        compare(a, aLo, middle[0], b, bLo, middle[1], deleted, inserted);
+        compare(a, middle[0], aHi, b, middle[1], bHi, deleted, inserted);
+    }
+
+    /** Returns a point, as indexes into A and B, on a shortest edit script
+     *  turning the lines of A from ALO to AHI into those of B from BLO to
+     *  BHI, found by searching forward from the start and backward from
+     *  the end until the searches meet, or null if the ranges have no line
+     *  in common. As in xdiff, the searches give up after a cost of the
+     *  square root of the number of lines, but at least MIN_COST, and
+     *  the point the forward search got furthest to is returned instead,
+     *  so that very different ranges take time near linear in their
+     *  size rather than quadratic, for an edit script that may be a
+     *  little longer than the shortest. */
+    private static int[] middle(int[] a, int aLo, int aHi,
+                                int[] b, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int max = (n + m + 1) / 2;
+        int offset = max;
+        int length = 2 * max + 2;
+        int[] forward = new int[length];
+        int[] backward = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int cost = Math.max(MIN_COST, (int) Math.sqrt(n + m));
+        int delta = n - m;
+        boolean odd = delta % 2 != 0;
+        int kStart1 = 0;
+        int kEnd1 = 0;
+        int kStart2 = 0;
+        int kEnd2 = 0;
+        for (int d = 0; d < max; d += 1) {
+            for (int k = -d + kStart1; k <= d - kEnd1; k += 2) {
+                int kOff = offset + k;
+                int x;
+                if (k == -d || k != d && forward[kOff - 1]
+                        < forward[kOff + 1]) {
+                    x = forward[kOff + 1];
+                } else {
+                    x = forward[kOff - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[kOff] = x;
+                if (x > n) {
+                    kEnd1 += 2;
+                } else if (y > m) {
+                    kStart1 += 2;
+                } else if (odd) {
+                    int k2Off = offset + delta - k;
+                    if (k2Off >= 0 && k2Off < length
+                            && backward[k2Off] != -1
+                            && x >= n - backward[k2Off]) {
+                        return new int[] {aLo + x, bLo + y};
+                    }
+                }
+            }
+            for (int k = -d + kStart2; k <= d - kEnd2; k += 2) {
+                int kOff = offset + k;
+                int x;
+                if (k == -d || k != d && backward[kOff - 1]
+                        < backward[kOff + 1]) {
+                    x = backward[kOff + 1];
+                } else {
+                    x = backward[kOff - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m
+                       && a[aHi - x - 1] == b[bHi - y - 1]) {
+                    x += 1;
+                    y += 1;
+                }
+                backward[kOff] = x;
+                if (x > n) {
+                    kEnd2 += 2;
+                } else if (y > m) {
+                    kStart2 += 2;
+                } else if (!odd) {
+                    int k1Off = offset + delta - k;
+                    if (k1Off >= 0 && k1Off < length
+                            && forward[k1Off] != -1) {
+                        int x1 = forward[k1Off];
+                        int y1 = offset + x1 - k1Off;
+                        if (x1 >= n - x) {
+                            return new int[] {aLo + x1, bLo + y1};
+                        }
+                    }
+                }
+            }
+            if (d >= cost) {
+                return furthest(forward, offset, d, n, m, aLo, bLo);
+            }
+        }
+        return null;
+    }
+
+    /** Returns the point, as indexes into A and B, that the forward search
+     *  FORWARD of middle, centred on OFFSET, got furthest to in D steps
+     *  on ranges of N and M lines from ALO and BLO, or null if it got
+     *  nowhere or to the end. A shortest edit script need not pass
+     *  through it, but every edit script does turn the lines before it
+     *  into one another, and those after it. */
+    private static int[] furthest(int[] forward, int offset, int d,
+                                  int n, int m, int aLo, int bLo) {
+        int[] best = null;
+        int most = 0;
+        for (int k = -d; k <= d; k += 1) {
+            int x = forward[offset + k];
+            int y = x - k;
+            if (x >= 0 && x <= n && y >= 0 && y <= m && x + y > most
+                    && x + y < n + m) {
+                best = new int[] {aLo + x, bLo + y};
+                most = x + y;
+            }
+        }
+        return best;
+    }
+
+    /** The contents of a file, as lines. */
+    static class Text {
+        /** The text CONTENTS. */
+        Text(String contents) {
+            _binary = contents.indexOf('\0') != -1;
+            _endsWithNewline = contents.isEmpty()
+                    || contents.endsWith("\n");
+            String body = _endsWithNewline && !contents.isEmpty()
+                    ? contents.substring(0, contents.length() - 1) : contents;
+            _lines = contents.isEmpty() ? new String[0]
+                : body.split("\n", -1);
+        }
+
+        /** Returns the number of lines. */
+        int size() {
+            return _lines.length;
+        }
+
+        /** Returns line I, without its newline. */
+        String line(int i) {
+            return _lines[i];
+        }
+
+        /** Returns true iff the last line ends with a newline. */
+        boolean endsWithNewline() {
+            return _endsWithNewline;
+        }
+
+        /** Returns true iff the contents are not text. */
+        boolean isBinary() {
+            return _binary;
+        }
+
+        /** Returns the lines as numbers, equal lines having equal numbers,
+         *  given by NUMBERS or added to it. */
+        int[] numbered(HashMap<String, Integer> numbers) {
+            int[] numbered = new int[_lines.length];
+            for (int i = 0; i < _lines.length; i += 1) {
+                Integer number = numbers.get(_lines[i]);
+                if (number == null) {
+                    number = numbers.size();
+                    numbers.put(_lines[i], number);
+                }
+                numbered[i] = number;
+            }
+            int last = _lines.length - 1;
+            if (!_endsWithNewline && last >= 0) {
+                numbered[last] = -1 - numbered[last];
+            }
+            return numbered;
+        }
+
+        /** The lines. */
+        private final String[] _lines;
+        /** True iff the last line ends with a newline. */
+        private final boolean _endsWithNewline;
+        /** True iff the contents are not text. */
+        private final boolean _binary;
+    }
+
+    /** Least number of edits middle looks through before settling for
+     *  a point that may not be on a shortest edit script. */
+    private static final int MIN_COST = 256;
+
+    /** Lines of context around each hunk. */
+    private static final int CONTEXT = 3;
+
+    /** Longest bar drawn by --stat. */
+    private static final int BAR = 50;
+
+    /** Size of the output buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+}
@@ -0,0 +1,229 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/** @author Riddhi Bagadiaa
+ * Line-by-line three-way merge of a file, by which merge combines the
+ * changes the current and given branches made to it since their split
+ * point. The lines of each branch's version are matched with those of
+ * the split point's by Diff. Runs of split-point lines that both
+ * branches kept unchanged divide the file into stable lines, which are
+ * written as they are, and chunks between them. A chunk that only one
+ * branch changed, or that both changed alike, takes that change, and
+ * only a chunk that the two changed differently is written as a
+ * conflict, between "<<<<<<< HEAD", "=======" and ">>>>>>>" lines.
+ * Files that are not UTF-8 text conflict as a whole, and are copied into
+ * the conflict byte for byte. */
+
+class Diff3 {
+
+    /** Merges the file whose contents at the split point, in the current
+     *  branch and in the given branch have the IDs BASE, CURRENT and
+     *  GIVEN, any of them null if the file is missing there, writing the
+     *  result to FILE. Returns true iff some changes conflicted. */
+    static boolean merge(String base, String current, String given,
+                         File file) {
+        try (OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(file), BUFFER_SIZE)) {
+            return merge(bytes(base), bytes(current), bytes(given), out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the merge of the changes from the contents BASE to CURRENT
+     *  and from BASE to GIVEN to OUT, returning true iff some of them
+     *  conflicted. Contents that are not UTF-8 text are not decoded at
+     *  all, and their conflict is written byte for byte. */
+    static boolean merge(byte[] base, byte[] current, byte[] given,
+                         OutputStream out) throws IOException {
+        Diff.Text o = text(base);
+        Diff.Text a = text(current);
+        Diff.Text b = text(given);
+        if (o == null || a == null || b == null) {
+            out.write(HEAD_MARKER);
+            writeSide(current, out);
+            out.write(SEPARATOR_MARKER);
+            writeSide(given, out);
+            out.write(END_MARKER);
+            return true;
+        }
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        boolean conflict = merge(o, a, b, writer);
+        writer.flush();
+        return conflict;
+    }
+
+    /** Returns the contents with the given ID, or none if ID is null. */
+    private static byte[] bytes(String id) {
+        return id == null ? new byte[0] : ObjectStore.read(id);
+    }
+
+    /** Returns CONTENTS as text, or null if they are not valid UTF-8 or
+     *  hold a NUL byte. */
+    private static Diff.Text text(byte[] contents) {
+        try {
+            Diff.Text text = new Diff.Text(StandardCharsets.UTF_8
+                    .newDecoder().decode(ByteBuffer.wrap(contents))
+                    .toString());
+            return text.isBinary() ? null : text;
+        } catch (CharacterCodingException excp) {
+            return null;
+        }
+    }
+
+    /** Writes CONTENTS to OUT as one side of a conflict, ending it with a
+     *  newline if it has none. */
+    private static void writeSide(byte[] contents, OutputStream out)
+        throws IOException {
+        out.write(contents);
+        if (contents.length > 0 && contents[contents.length - 1] != '\n') {
+            out.write('\n');
+        }
+    }
+
+    /** Writes the merge of the changes from O to A and from O to B to
+     *  OUT, returning true iff some of them conflicted. */
+    static boolean merge(Diff.Text o, Diff.Text a, Diff.Text b,
+                         Writer out) throws IOException {
+        HashMap<String, Integer> numbers = new HashMap<>();
+        int[] base = o.numbered(numbers);
+        int[] ours = a.numbered(numbers);
+        int[] theirs = b.numbered(numbers);
+        int[] inOurs = matches(base, ours);
+        int[] inTheirs = matches(base, theirs);
+        boolean conflict = false;
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (true) {
+            while (i < base.length && inOurs[i] == j && inTheirs[i] == k) {
+                writeLine(o, i, out);
+                i += 1;
+                j += 1;
+                k += 1;
+            }
+            int end = i;
+            while (end < base.length && (inOurs[end] < 0
+                    || inTheirs[end] < 0)) {
+                end += 1;
+            }
+            int ourEnd = end < base.length ? inOurs[end] : ours.length;
+            int theirEnd = end < base.length ? inTheirs[end] : theirs.length;
+            if (end == i && ourEnd == j && theirEnd == k) {
+                return conflict;
+            }
+            if (same(base, i, end, ours, j, ourEnd)) {
+                writeLines(b, k, theirEnd, out);
+            } else if (same(base, i, end, theirs, k, theirEnd)
+                    || same(ours, j, ourEnd, theirs, k, theirEnd)) {
+                writeLines(a, j, ourEnd, out);
+            } else {
+                writeConflict(a, j, ourEnd, b, k, theirEnd, out);
+                conflict = true;
+            }
+            i = end;
+            j = ourEnd;
+            k = theirEnd;
+        }
+    }
+
+    /** Returns, for each of the lines BASE, the index of the line of
+     *  OTHER it is kept as, or -1 if OTHER does not keep it. */
+    private static int[] matches(int[] base, int[] other) {
+        boolean[][] edits = Diff.edits(base, other);
+        int[] matches = new int[base.length];
+        int j = 0;
+        for (int i = 0; i < base.length; i += 1) {
+            if (edits[0][i]) {
+                matches[i] = -1;
+                continue;
+            }
+            while (edits[1][j]) {
+                j += 1;
+            }
+            matches[i] = j;
+            j += 1;
+        }
+        return matches;
+    }
+
+    /** Returns true iff the lines of A from ALO to AHI are those of B from
+     *  BLO to BHI. */
+    private static boolean same(int[] a, int aLo, int aHi,
+                                int[] b, int bLo, int bHi) {
+        if (aHi - aLo != bHi - bLo) {
+            return false;
+        }
+        for (int i = 0; i < aHi - aLo; i += 1) {
+            if (a[aLo + i] != b[bLo + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Writes the lines of A from ALO to AHI and of B from BLO to BHI to
+     *  OUT as a conflict. */
+    private static void writeConflict(Diff.Text a, int aLo, int aHi,
+                                      Diff.Text b, int bLo, int bHi,
+                                      Writer out) throws IOException {
+        out.write(new String(HEAD_MARKER, StandardCharsets.UTF_8));
+        if (!writeLines(a, aLo, aHi, out)) {
+            out.write('\n');
+        }
+        out.write(new String(SEPARATOR_MARKER, StandardCharsets.UTF_8));
+        if (!writeLines(b, bLo, bHi, out)) {
+            out.write('\n');
+        }
+        out.write(new String(END_MARKER, StandardCharsets.UTF_8));
+    }
+
+    /** Writes the lines of TEXT from LO to HI to OUT, returning false iff
+     *  the last of them has no newline. */
+    private static boolean writeLines(Diff.Text text, int lo, int hi,
+                                      Writer out) throws IOException {
+        boolean newline = true;
+        for (int i = lo; i < hi; i += 1) {
+            newline = writeLine(text, i, out);
+        }
+        return newline;
+    }
+
+    /** Writes line I of TEXT to OUT, returning false iff it has no
+     *  newline. */
+    private static boolean writeLine(Diff.Text text, int i, Writer out)
+        throws IOException {
+        out.write(text.line(i));
+        if (i == text.size() - 1 && !text.endsWithNewline()) {
+            return false;
+        }
+        out.write('\n');
+        return true;
+    }
+
+    /** Line opening a conflict, before the current branch's side. */
+    private static final byte[] HEAD_MARKER =
+            "<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Line between the two sides of a conflict. */
+    private static final byte[] SEPARATOR_MARKER =
+            "=======\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Line closing a conflict, after the given branch's side. */
+    private static final byte[] END_MARKER =
+            ">>>>>>>\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Size of the output buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+}
@@ -0,0 +1,94 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the three-way merges of Diff3.
+ *  @author Riddhi Bagadiaa
+ */
+public class Diff3Test {
+
+    /** Changes to different lines are both taken. */
+    @Test
+    public void separateChanges() throws IOException {
+        assertMerge("a\nb\nc\nd\ne\n", "a\nB\nc\nd\ne\n", "a\nb\nc\nD\ne\n",
+                "a\nB\nc\nD\ne\n", false);
+        assertMerge("a\nb\nc\n", "x\na\nb\nc\n", "a\nb\n",
+                "x\na\nb\n", false);
+    }
+
+    /** A change made alike by both branches is taken once, and a change
+     *  made by one branch only is taken as it is. */
+    @Test
+    public void sameChanges() throws IOException {
+        assertMerge("a\nb\nc\n", "a\nB\nc\n", "a\nB\nc\n",
+                "a\nB\nc\n", false);
+        assertMerge("a\nb\nc\n", "a\nb\nc\n", "a\nc\n", "a\nc\n", false);
+    }
+
+    /** Lines changed differently by the two branches are written as a
+     *  conflict, and only they are. */
+    @Test
+    public void conflict() throws IOException {
+        assertMerge("a\nb\nc\nd\n", "a\nB\nc\nD\n", "a\nX\nc\nd\n",
+                "a\n<<<<<<< HEAD\nB\n=======\nX\n>>>>>>>\nc\nD\n", true);
+        assertMerge("a\nb\n", "a\nB\n", "a\n",
+                "a\n<<<<<<< HEAD\nB\n=======\n>>>>>>>\n", true);
+    }
+
+    /** A file added by both branches conflicts as a whole, and a last line
+     *  without a newline keeps it missing. */
+    @Test
+    public void missingBaseAndNewline() throws IOException {
+        assertMerge("", "a\nb", "c\n",
+                "<<<<<<< HEAD\na\nb\n=======\nc\n>>>>>>>\n", true);
+        assertMerge("a\nb\nc\n", "A\nb\nc\n", "a\nb\nc", "A\nb\nc",
+                false);
+    }
+
+    /** Contents that are not UTF-8, such as Latin-1 text, conflict as a
+     *  whole with every byte kept, while UTF-8 text is merged line by
+     *  line with every byte kept. */
+    @Test
+    public void encodings() throws IOException {
+        String base = "caf\u00e9\nb\nx\nc\n";
+        String current = "caf\u00e9\nB\nx\nc\n";
+        String given = "caf\u00e9\nb\nx\nC";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(Diff3.merge(latin1(base), latin1(current), latin1(given),
+                out));
+        assertArrayEquals(latin1("<<<<<<< HEAD\n" + current + "=======\n"
+                + given + "\n>>>>>>>\n"), out.toByteArray());
+
+        out.reset();
+        assertFalse(Diff3.merge(utf8(base), utf8(current), utf8(given),
+                out));
+        assertArrayEquals(utf8("caf\u00e9\nB\nx\nC"), out.toByteArray());
+    }
+
+    /** Returns TEXT encoded as Latin-1. */
+    private static byte[] latin1(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /** Returns TEXT encoded as UTF-8. */
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Asserts that merging the changes from BASE to CURRENT and to GIVEN
+     *  gives MERGED, conflicting iff CONFLICT. */
+    private static void assertMerge(String base, String current,
+                                    String given, String merged,
+                                    boolean conflict) throws IOException {
+        StringWriter out = new StringWriter();
+        assertEquals(conflict, Diff3.merge(new Diff.Text(base),
+                new Diff.Text(current), new Diff.Text(given), out));
+        assertEquals(merged, out.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the edit scripts of Diff.
+ *  @author Riddhi Bagadiaa
+ */
+public class DiffTest {
+
+    /** The edit script of small random texts turns the one into the
+     *  other and is as short as any, as found by a longest common
+     *  subsequence. */
+    @Test
+    public void shortestEdits() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            int[] a = lines(random, random.nextInt(40), 4);
+            int[] b = lines(random, random.nextInt(40), 4);
+            boolean[][] edits = Diff.edits(a, b);
+            assertEquals(kept(a, edits[0]), kept(b, edits[1]));
+            assertEquals(a.length + b.length - 2 * common(a, b),
+                    count(edits[0]) + count(edits[1]));
+        }
+    }
+
+    /** Texts that share nothing, or only their ends, are edited as a
+     *  whole or in the middle only. */
+    @Test
+    public void edgeCases() {
+        boolean[][] edits = Diff.edits(new int[] {1, 2}, new int[] {3});
+        assertTrue(Arrays.equals(new boolean[] {true, true}, edits[0]));
+        assertTrue(Arrays.equals(new boolean[] {true}, edits[1]));
+        edits = Diff.edits(new int[0], new int[] {1, 2});
+        assertTrue(Arrays.equals(new boolean[] {true, true}, edits[1]));
+        edits = Diff.edits(new int[] {1, 2, 3}, new int[] {1, 4, 3});
+        assertTrue(Arrays.equals(new boolean[] {false, true, false}, edits[0]));
+        assertTrue(Arrays.equals(new boolean[] {false, true, false}, edits[1]));
+    }
+
+    /** Long texts with little in common, for which the search gives up
+     *  early, still get an edit script that turns the one into the
+     *  other. */
+    @Test
+    public void longEdits() {
+        Random random = new Random(2);
+        int[] a = lines(random, 20000, 1 << 20);
+        int[] b = lines(random, 20000, 1 << 20);
+        for (int i = 0; i < b.length; i += 3) {
+            b[i] = a[i];
+        }
+        boolean[][] edits = Diff.edits(a, b);
+        assertEquals(kept(a, edits[0]), kept(b, edits[1]));
+    }
+
+    /** Returns N random lines of up to KINDS kinds. */
+    private static int[] lines(Random random, int n, int kinds) {
+        int[] lines = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            lines[i] = random.nextInt(kinds);
+        }
+        return lines;
+    }
+
+    /** Returns the lines that EDITED does not mark of LINES. */
+    private static List<Integer> kept(int[] lines, boolean[] edited) {
+        ArrayList<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < lines.length; i += 1) {
+            if (!edited[i]) {
+                kept.add(lines[i]);
+            }
+        }
+        return kept;
+    }
+
+    /** Returns the number of marks in EDITED. */
+    private static int count(boolean[] edited) {
+        int n = 0;
+        for (boolean e : edited) {
+            if (e) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Returns the length of a longest common subsequence of A and B. */
+    private static int common(int[] a, int[] b) {
+        int[][] lengths = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i -= 1) {
+            for (int j = b.length - 1; j >= 0; j -= 1) {
+                lengths[i][j] = a[i] == b[j] ? lengths[i + 1][j + 1] + 1
+                    : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        return lengths[0][0];
+    }
+
+    /** Number of random pairs of texts compared. */
+    private static final int TRIALS = 500;
+}
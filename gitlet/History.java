@@ -0,0 +1,195 @@
+package gitlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** @author Riddhi Bagadiaa
+ * Printing of commit histories for log and global-log, limited by the
+ * options "-n COUNT" (print at most COUNT commits), "--skip COUNT" (pass
+ * over the first COUNT that would be printed), "--since DATE" and
+ * "--until DATE" (print only commits made at or after, or at or before,
+ * DATE). Commits are taken one at a time from an iterator and filtered
+ * by their time in the CommitGraph, so only those printed are read, and
+ * the walk stops as soon as COUNT have been. Output goes through one
+ * large buffer rather than a flush per line. */
+
+class History {
+
+    /** Options parsed from ARGS, the arguments of log or global-log, of
+     *  which the first is the command name. */
+    History(String... args) {
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw Utils.error("Incorrect operands.");
+            }
+            switch (args[i]) {
+            case "-n":
+                _count = count(args[i + 1]);
+                break;
+            case "--skip":
+                _skip = count(args[i + 1]);
+                break;
+            case "--since":
+                _since = date(args[i + 1], false);
+                break;
+            case "--until":
+                _until = date(args[i + 1], true);
+                break;
+            default:
+                throw Utils.error("Incorrect operands.");
+            }
+        }
+    }
+
+    /** Returns the first-parent ancestry of the commit with the given
+     *  SHA1, starting with it, as IDs produced as they are needed. */
+    static Iterator<String> firstParents(String sha1) {
+        return new Iterator<String>() {
+            private int _next = CommitGraph.indexOf(sha1);
+
+            @Override
+            public boolean hasNext() {
+                return _next != CommitGraph.NONE;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String id = CommitGraph.sha1(_next);
+                _next = CommitGraph.parent(_next);
+                return id;
+            }
+        };
+    }
+
+    /** Prints the commits with the IDs produced by COMMITS that pass the
+     *  options. Commits to print are gathered in batches of up to BATCH,
+     *  each read in parallel and then printed in order. */
+    void print(Iterator<String> commits) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out),
+                BUFFER_SIZE);
+        try {
+            int skipped = 0;
+            int printed = 0;
+            ArrayList<String> batch = new ArrayList<>();
+            while (printed < _count && commits.hasNext()) {
+                String id = commits.next();
+                if (!inRange(id)) {
+                    continue;
+                }
+                if (skipped < _skip) {
+                    skipped += 1;
+                    continue;
+                }
+                batch.add(id);
+                printed += 1;
+                if (batch.size() == BATCH) {
+                    for (Commit c : Commit.readAll(batch)) {
+                        print(c, out);
+                    }
+                    batch.clear();
+                }
+            }
+            for (Commit c : Commit.readAll(batch)) {
+                print(c, out);
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns true iff the commit with the given ID was made within the
+     *  range of the options. */
+    private boolean inRange(String id) {
+        if (_since == Long.MIN_VALUE && _until == Long.MAX_VALUE) {
+            return true;
+        }
+        long time = CommitGraph.time(CommitGraph.indexOf(id));
+        return time >= _since && time <= _until;
+    }
+
+    /** Prints the log entry of commit C to OUT. */
+    private static void print(Commit c, Writer out) throws IOException {
+        out.write("===\n");
+        out.write("commit " + c.getSHA1() + "\n");
+        if (c.getSecondParent() != null) {
+            out.write("Merge: " + c.getParent().substring(0, 7)
+                    + " " + c.getSecondParent().substring(0, 7) + "\n");
+        }
+        out.write("Date: " + c.getTimeStamp() + "\n");
+        out.write(c.getMessage() + "\n");
+        out.write("\n");
+    }
+
+    /** Returns the non-negative count in ARG. */
+    private static int count(String arg) {
+        try {
+            int count = Integer.parseInt(arg);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException excp) {
+            /* Reported below. */
+        }
+        throw Utils.error("Invalid count.");
+    }
+
+    /** Returns the time in milliseconds of the date in ARG, written as
+     *  "yyyy-MM-dd HH:mm:ss" or "yyyy-MM-dd" in the local time zone. A
+     *  date without a time stands for the start of that day, or for its
+     *  end if END. */
+    private static long date(String arg, boolean end) {
+        try {
+            return format("yyyy-MM-dd HH:mm:ss").parse(arg).getTime();
+        } catch (ParseException excp) {
+            /* Try it as a day. */
+        }
+        try {
+            Calendar day = Calendar.getInstance();
+            day.setTime(format("yyyy-MM-dd").parse(arg));
+            if (end) {
+                day.add(Calendar.DATE, 1);
+                return day.getTimeInMillis() - 1;
+            }
+            return day.getTimeInMillis();
+        } catch (ParseException excp) {
+            throw Utils.error("Invalid date.");
+        }
+    }
+
+    /** Returns a strict parser of dates in PATTERN. */
+    private static SimpleDateFormat format(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setLenient(false);
+        return format;
+    }
+
+    /** Most commits read at once. */
+    private static final int BATCH = 256;
+
+    /** Size of the output buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Most commits to print. */
+    private int _count = Integer.MAX_VALUE;
+
+    /** Number of commits to pass over before printing. */
+    private int _skip;
+
+    /** Earliest time of a commit to print. */
+    private long _since = Long.MIN_VALUE;
+
+    /** Latest time of a commit to print. */
+    private long _until = Long.MAX_VALUE;
+}
@@ -0,0 +1,383 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/** @author Riddhi Bagadiaa
+ * Staging area and stat cache of the working directory, kept together in
+ * the single binary file .gitlet/index. The file is read once per command
+ * and, if anything changed, written back once at its end.
+ *
+ * The staging area maps each file staged for addition to the ObjectStore
+ * ID of its staged contents, which are already in the ObjectStore, and
+ * each file staged for removal to the ID of the contents it had.
+ *
+ * For each file whose contents have been hashed, the stat cache records
+ * the file's size, modification time and inode along with the ID of its
+ * contents, so a file is only read again once its stat data changes.
+ * As in Git, an entry whose modification time is not older than the
+ * index file itself is "racily clean": the file could have changed
+ * again within the same clock tick, so it is always hashed afresh. */
+
+class Index {
+
+    /** File holding the index. */
+    static final File INDEX_FILE = Utils.join(Main.MAIN_FOLDER, "index");
+
+    /** Returns the files staged for addition, in order, with the IDs of
+     *  their staged contents. */
+    static SortedMap<String, String> staged() {
+        load();
+        return Collections.unmodifiableSortedMap(_staged);
+    }
+
+    /** Returns the files staged for removal, in order, with the IDs of
+     *  the contents they had. */
+    static SortedMap<String, String> removed() {
+        load();
+        return Collections.unmodifiableSortedMap(_removed);
+    }
+
+    /** Stages the file NAME for addition with the contents whose ID is
+     *  given. */
+    static void stage(String name, String id) {
+        load();
+        _staged.put(name, id);
+        _dirty = true;
+    }
+
+    /** Stages the file NAME, whose contents had the given ID, for
+     *  removal. */
+    static void stageRemoval(String name, String id) {
+        load();
+        _removed.put(name, id);
+        _dirty = true;
+    }
+
+    /** Unstages the file NAME for addition. */
+    static void unstage(String name) {
+        load();
+        if (_staged.remove(name) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Unstages the file NAME for removal. */
+    static void unstageRemoval(String name) {
+        load();
+        if (_removed.remove(name) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Empties the staging area. */
+    static void clearStage() {
+        load();
+        if (!_staged.isEmpty() || !_removed.isEmpty()) {
+            _staged.clear();
+            _removed.clear();
+            _dirty = true;
+        }
+    }
+
+    /** Returns the ObjectStore ID of the contents of the working file
+     *  NAME, or null if there is no such file. The file is only read if
+     *  its stat data differs from what was last recorded for it. */
+    static String hash(String name) {
+        load();
+        File file = Utils.join(Main.CWD, name);
+        Entry stat = stat(file);
+        if (stat == null) {
+            return null;
+        }
+        String id = cachedID(name, stat);
+        if (id == null) {
+            stat.id = ObjectStore.id(file);
+            update(name, stat);
+            id = stat.id;
+        }
+        return id;
+    }
+
+    /** Returns the ObjectStore IDs of the contents of the working files
+     *  NAMES, leaving out those that do not exist. Files are stat'ed, and
+     *  read only if their stat data changed, in parallel. Nothing is
+     *  stored, so contents already in the ObjectStore are never
+     *  compressed again. */
+    static Map<String, String> hashAll(Collection<String> names) {
+        load();
+        ConcurrentHashMap<String, String> ids = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Entry> hashed = new ConcurrentHashMap<>();
+        names.parallelStream().forEach(name -> {
+            File file = Utils.join(Main.CWD, name);
+            Entry stat = stat(file);
+            if (stat == null) {
+                return;
+            }
+            String id = cachedID(name, stat);
+            if (id == null) {
+                stat.id = ObjectStore.id(file);
+                hashed.put(name, stat);
+                id = stat.id;
+            }
+            ids.put(name, id);
+        });
+        for (Map.Entry<String, Entry> e : hashed.entrySet()) {
+            update(e.getKey(), e.getValue());
+        }
+        return ids;
+    }
+
+    /** Returns the contents ID recorded for the working file NAME if its
+     *  current stat data STAT shows it cannot have changed since, and
+     *  null otherwise. */
+    private static String cachedID(String name, Entry stat) {
+        Entry cached = _entries.get(name);
+        if (cached != null && cached.sameStat(stat)
+                && cached.mtime < _indexTime) {
+            return cached.id;
+        }
+        return null;
+    }
+
+    /** Records the freshly hashed STAT as the entry for the working file
+     *  NAME, marking the index changed if the entry is new, differs or
+     *  was racily clean. */
+    private static void update(String name, Entry stat) {
+        Entry cached = _entries.get(name);
+        if (cached == null || !cached.sameStat(stat)
+                || !stat.id.equals(cached.id)
+                || cached.mtime >= _indexTime) {
+            _entries.put(name, stat);
+            _dirty = true;
+        }
+    }
+
+    /** Records that the working file NAME, just written, holds the
+     *  contents with the given ID. */
+    static void record(String name, String id) {
+        load();
+        Entry stat = stat(Utils.join(Main.CWD, name));
+        if (stat != null) {
+            stat.id = id;
+            _entries.put(name, stat);
+            _dirty = true;
+        }
+    }
+
+    /** Forgets what is known about the working file NAME. */
+    static void forget(String name) {
+        load();
+        if (_entries.remove(name) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Writes the index back to INDEX_FILE if it has changed, replacing
+     *  the old one atomically. */
+    static void write() {
+        if (!_dirty || !Main.MAIN_FOLDER.exists()) {
+            return;
+        }
+        File temp = Utils.join(Main.MAIN_FOLDER, "index.tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(_entries.size());
+            for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.mtime);
+                out.writeLong(entry.inode);
+                out.write(Utils.sha1Bytes(entry.id));
+            }
+            writeStage(out, _staged);
+            writeStage(out, _removed);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), INDEX_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _indexTime = indexTime();
+        _dirty = false;
+    }
+
+    /** Writes the staged files STAGE to OUT. */
+    private static void writeStage(DataOutputStream out,
+                                   TreeMap<String, String> stage)
+        throws IOException {
+        out.writeInt(stage.size());
+        for (Map.Entry<String, String> e : stage.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.write(Utils.sha1Bytes(e.getValue()));
+        }
+    }
+
+    /** Reads staged files written by writeStage from IN into STAGE. */
+    private static void readStage(DataInputStream in,
+                                  TreeMap<String, String> stage)
+        throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i += 1) {
+            String name = in.readUTF();
+            stage.put(name, Codec.readID(in));
+        }
+    }
+
+    /** Writes the index back as write does, unless another process has
+     *  written it since it was read, in which case the changes made to it
+     *  here are dropped. */
+    static void writeIfUnchanged() {
+        if (_entries != null && indexTime() != _indexTime) {
+            invalidate();
+            return;
+        }
+        write();
+    }
+
+    /** Forgets the index read so far, so that it is read again when next
+     *  needed. */
+    static void invalidate() {
+        _entries = null;
+        _staged = null;
+        _removed = null;
+        _dirty = false;
+    }
+
+    /** Reads INDEX_FILE into memory if that has not been done yet. */
+    private static void load() {
+        if (_entries != null) {
+            return;
+        }
+        _entries = new HashMap<>();
+        _staged = new TreeMap<>();
+        _removed = new TreeMap<>();
+        _dirty = false;
+        _indexTime = indexTime();
+        if (!INDEX_FILE.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(INDEX_FILE)))) {
+            if (in.readInt() != MAGIC) {
+                invalidate();
+                throw Utils.error("Unreadable index.");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i += 1) {
+                String name = in.readUTF();
+                Entry entry = new Entry(in.readLong(), in.readLong(),
+                        in.readLong());
+                entry.id = Codec.readID(in);
+                _entries.put(name, entry);
+            }
+            readStage(in, _staged);
+            readStage(in, _removed);
+        } catch (IOException excp) {
+            invalidate();
+            throw Utils.error("Unreadable index.");
+        }
+    }
+
+    /** Returns the modification time of INDEX_FILE in nanoseconds. */
+    private static long indexTime() {
+        try {
+            return Files.getLastModifiedTime(INDEX_FILE.toPath())
+                    .to(TimeUnit.NANOSECONDS);
+        } catch (IOException excp) {
+            return 0;
+        }
+    }
+
+    /** Returns the stat data of FILE, or null if it is not a plain
+     *  file. */
+    private static Entry stat(File file) {
+        try {
+            Map<String, Object> attrs;
+            long inode = 0;
+            try {
+                attrs = Files.readAttributes(file.toPath(),
+                        "unix:size,lastModifiedTime,ino,isRegularFile");
+                inode = (Long) attrs.get("ino");
+            } catch (UnsupportedOperationException
+                     | IllegalArgumentException excp) {
+                attrs = Files.readAttributes(file.toPath(),
+                        "size,lastModifiedTime,isRegularFile");
+            }
+            if (!(Boolean) attrs.get("isRegularFile")) {
+                return null;
+            }
+            long mtime = ((FileTime) attrs.get("lastModifiedTime"))
+                    .to(TimeUnit.NANOSECONDS);
+            return new Entry((Long) attrs.get("size"), mtime, inode);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Stat data and contents ID of one working file. */
+    private static class Entry {
+        /** An entry for a file of the given SIZE, MTIME and INODE. */
+        Entry(long size, long mtime, long inode) {
+            this.size = size;
+            this.mtime = mtime;
+            this.inode = inode;
+        }
+
+        /** Returns true iff OTHER has the same stat data as this. */
+        boolean sameStat(Entry other) {
+            return size == other.size && mtime == other.mtime
+                    && inode == other.inode;
+        }
+
+        /** Size of the file in bytes. */
+        private final long size;
+        /** Modification time of the file in nanoseconds. */
+        private final long mtime;
+        /** Inode number of the file, or 0 where unknown. */
+        private final long inode;
+        /** ObjectStore ID of the file's contents. */
+        private String id;
+    }
+
+    /** Marks a file as a Gitlet index, in its current format. */
+    private static final int MAGIC = 0x47495832;
+
+    /** Stat cache entries by file name, or null if not yet read. */
+    private static HashMap<String, Entry> _entries;
+
+    /** Files staged for addition, or null if not yet read. */
+    private static TreeMap<String, String> _staged;
+
+    /** Files staged for removal, or null if not yet read. */
+    private static TreeMap<String, String> _removed;
+
+    /** True iff the index in memory differs from INDEX_FILE. */
+    private static boolean _dirty;
+
+    /** Modification time of INDEX_FILE when read, in nanoseconds. */
+    private static long _indexTime;
+}
@@ -0,0 +1,130 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+
+/** @author Riddhi Bagadiaa
+ * Lock on a repository, held by every command that may change it. The
+ * lock is an operating-system lock on .gitlet/index.lock, taken through
+ * a FileChannel, so it is released when the process ends, however it
+ * ends, and a crash never leaves a stale lock behind. Commands that only
+ * read, such as log and find, do not take it. The files they read are
+ * mostly replaced by atomic renames, so they see either the old state or
+ * the new one, but gc and fanout delete and move the objects and commits
+ * themselves. Those two therefore also hold .gitlet/objects.lock
+ * exclusively while they do so, and the commands that only read hold it
+ * shared throughout. */
+
+class Lock implements AutoCloseable {
+
+    /** File locked. */
+    static final File LOCK_FILE = Utils.join(Main.MAIN_FOLDER, "index.lock");
+
+    /** File locked by gc and fanout, and shared by commands that read. */
+    static final File OBJECTS_LOCK_FILE =
+            Utils.join(Main.MAIN_FOLDER, "objects.lock");
+
+    /** Returns the lock on the repository, waiting up to TIMEOUT
+     *  milliseconds for another command to release it, or null if there
+     *  is no repository. */
+    static Lock acquire() {
+        return acquire(LOCK_FILE, false);
+    }
+
+    /** Returns a shared lock on the objects and commits, by which gc and
+     *  fanout leave them in place, waiting up to TIMEOUT milliseconds for
+     *  either to finish, or null if there is no repository. */
+    static Lock shareObjects() {
+        return acquire(OBJECTS_LOCK_FILE, true);
+    }
+
+    /** Returns the exclusive lock on the objects and commits, waiting up to
+     *  TIMEOUT milliseconds for the commands reading them to finish, or
+     *  null if there is no repository. */
+    static Lock lockObjects() {
+        return acquire(OBJECTS_LOCK_FILE, false);
+    }
+
+    /** Returns the lock on the repository if no other command holds it,
+     *  and null otherwise or if there is no repository. */
+    static Lock tryAcquire() {
+        return tryAcquire(LOCK_FILE, false);
+    }
+
+    /** Returns a lock on FILE, shared iff SHARED, waiting up to TIMEOUT
+     *  milliseconds for other commands to release theirs, or null if
+     *  there is no repository. */
+    private static Lock acquire(File file, boolean shared) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (true) {
+            Lock lock = tryAcquire(file, shared);
+            if (lock != null || !Main.MAIN_FOLDER.exists()) {
+                return lock;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw Utils.error("Another Gitlet command is running in"
+                        + " this repository.");
+            }
+            try {
+                Thread.sleep(RETRY);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                throw Utils.error("Interrupted while waiting for the lock.");
+            }
+        }
+    }
+
+    /** Returns a lock on FILE, shared iff SHARED, if no other command
+     *  holds a conflicting one, and null otherwise or if there is no
+     *  repository. */
+    private static Lock tryAcquire(File file, boolean shared) {
+        if (!Main.MAIN_FOLDER.exists()) {
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+            if (lock == null) {
+                channel.close();
+                return null;
+            }
+            return new Lock(channel, lock);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** A lock LOCK held through CHANNEL. */
+    private Lock(FileChannel channel, FileLock lock) {
+        _channel = channel;
+        _lock = lock;
+    }
+
+    /** Releases the lock. */
+    @Override
+    public void close() {
+        try {
+            _lock.release();
+            _channel.close();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Longest wait for the lock, in milliseconds. */
+    private static final long TIMEOUT = 10000;
+
+    /** Wait between attempts to take the lock, in milliseconds. */
+    private static final long RETRY = 20;
+
+    /** Channel of the file locked. */
+    private final FileChannel _channel;
+
+    /** The lock held. */
+    private final FileLock _lock;
+}
@@ -1,6 +1,7 @@
 package gitlet;
 
 import java.io.File;
+import java.util.Set;
 
 /** Driver class for Gitlet, the tiny stupid version-control system.
  *  @author Riddhi Bagadiaa
@@ -11,27 +12,86 @@ public class Main {
     static final File CWD = new File(".");
     /** Main metadata folder. */
     static final File MAIN_FOLDER = Utils.join(CWD, ".gitlet");
-    /** Folder of Branch Heads. */
-    static final File BRANCH_HEADS = Utils.join(MAIN_FOLDER, "BRANCHES");
-    /** File of Main Head. */
-    static final File HEAD = Utils.join(MAIN_FOLDER, "HEAD");
-    /** Folder of Staging Area. */
-    static final File STAGING_AREA =
-            Utils.join(MAIN_FOLDER, "STAGING AREA");
-    /** Folder of Unstaging Area. */
-    static final File REMOVE_FROM_COMMIT =
-            Utils.join(MAIN_FOLDER, "UNSTAGING AREA");
-    /** File of current branch name. */
-    static final File CURRENT_BRANCH =
-            Utils.join(MAIN_FOLDER, "CURRENT BRANCH");
+    /** Message for a repository in a layout this version cannot read. */
+    static final String UNSUPPORTED_FORMAT =
+            "Unsupported repository format; delete .gitlet and re-init.";
 
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  <COMMAND> <OPERAND> .... When a daemon is serving this
+     *  repository, ARGS are handed to it instead. */
     public static void main(String... args) {
         if (args.length == 0) {
             System.out.println("Please enter a command.");
             System.exit(0);
         }
+        if (!args[0].equals("daemon") && Daemon.forward(args)) {
+            return;
+        }
+        run(args);
+    }
+
+    /** Runs the command in ARGS, printing the message of any
+     *  GitletException it raises, or of any IllegalArgumentException, by
+     *  which the storage classes report a file they cannot read or write,
+     *  unwrapped from any copy made by a parallel stream. The index is
+     *  written back only if the command succeeds, and everything read is
+     *  forgotten if it fails. Commands that may change the repository run
+     *  holding its Lock, with everything read before it was taken
+     *  forgotten; commands in READ_ONLY run without it, sharing the lock
+     *  on the objects instead and rereading the packs and fan-out that gc
+     *  and fanout change, and write back only what they refreshed of the
+     *  stat cache, and only if the lock is free and no other command has
+     *  written the index meanwhile. A daemon shares no lock itself, as
+     *  each command it runs takes its own. */
+    static void run(String... args) {
+        try {
+            if (args.length > 0 && READ_ONLY.contains(args[0])) {
+                try (Lock objects = args[0].equals("daemon") ? null
+                        : Lock.shareObjects()) {
+                    Config.invalidate();
+                    Pack.invalidate();
+                    dispatch(args);
+                }
+                try (Lock lock = Lock.tryAcquire()) {
+                    if (lock != null) {
+                        Index.writeIfUnchanged();
+                    }
+                }
+                return;
+            }
+            try (Lock lock = Lock.acquire()) {
+                Repository.invalidate();
+                Index.invalidate();
+                dispatch(args);
+                Index.write();
+            }
+        } catch (GitletException | IllegalArgumentException excp) {
+            Repository.invalidate();
+            Index.invalidate();
+            Throwable cause = excp;
+            while (cause.getCause() instanceof IllegalArgumentException) {
+                cause = cause.getCause();
+            }
+            System.out.println(cause.getMessage());
+        }
+    }
+
+    /** Commands that never change the repository, but for the stat cache
+     *  in the index. */
+    private static final Set<String> READ_ONLY =
+            Set.of("log", "global-log", "find", "status", "daemon",
+                   "cache-stats", "diff");
+
+    /** Runs the command in ARGS, refusing any but init in a repository
+     *  made before the refs were kept in packed-refs. */
+    private static void dispatch(String... args) {
+        if (args.length == 0) {
+            throw Utils.error("Please enter a command.");
+        }
+        if (!args[0].equals("init") && MAIN_FOLDER.exists()
+                && !Refs.REFS_FILE.exists()) {
+            throw Utils.error(UNSUPPORTED_FORMAT);
+        }
 
         switch (args[0]) {
         case "init":
@@ -73,9 +133,29 @@ public class Main {
         case "merge":
             Repository.merge(args);
             break;
+        case "config":
+            Config.config(args);
+            break;
+        case "fanout":
+            Repository.fanout(args);
+            break;
+        case "cache-stats":
+            Cache.cacheStats(args);
+            break;
+        case "diff":
+            Diff.diff(args);
+            break;
+        case "fsck":
+            Repository.fsck(args);
+            break;
+        case "gc":
+            Pack.gc(args);
+            break;
+        case "daemon":
+            Daemon.daemon(args);
+            break;
         default:
-            System.out.println("No command with that name exists.");
-            System.exit(0);
+            throw Utils.error("No command with that name exists.");
         }
     }
 }
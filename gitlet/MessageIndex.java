@@ -0,0 +1,368 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/** @author Riddhi Bagadiaa
+ * Index of commits by log message, by which find avoids reading every
+ * commit. .gitlet/messages holds MAGIC, the number of distinct messages,
+ * the offset of each one's entry and then the entries, in order of
+ * message: the message and the raw IDs of its commits, as written by
+ * Codec. It is memory-mapped and binary-searched, so an exact lookup
+ * reads a handful of pages however many commits there are. Commits made
+ * since it was written are appended, as raw ID and message, to
+ * .gitlet/messages.journal, which is read in full and merged into the
+ * index once it holds JOURNAL_LIMIT entries. An entry cut short by a
+ * crash is dropped, with any bytes after it, before the next is added.
+ * Substring and regular-expression searches look at each distinct
+ * message once, and the map from each word to the messages containing
+ * it is only built for the first search by words. */
+
+class MessageIndex {
+
+    /** File holding the sorted messages. */
+    static final File INDEX_FILE = Utils.join(Main.MAIN_FOLDER, "messages");
+
+    /** File holding the commits not yet merged into INDEX_FILE. */
+    static final File JOURNAL_FILE =
+            Utils.join(Main.MAIN_FOLDER, "messages.journal");
+
+    /** Records that the commit with the given SHA1 has MESSAGE, reading
+     *  only the journal and the entry of MESSAGE. */
+    static void add(String sha1, String message) {
+        if (exact(message).contains(sha1)) {
+            return;
+        }
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(JOURNAL_FILE.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(record);
+            Codec.writeID(out, sha1);
+            Codec.writeString(out, message);
+            channel.truncate(_journalEnd);
+            ByteBuffer bytes = ByteBuffer.wrap(record.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, _journalEnd + bytes.position());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _journalEnd += record.size();
+        journal(sha1, message);
+        if (_journalSize >= JOURNAL_LIMIT) {
+            write(merged());
+            JOURNAL_FILE.delete();
+            invalidate();
+        }
+    }
+
+    /** Returns the IDs of the commits whose message is MESSAGE, in
+     *  order. */
+    static TreeSet<String> exact(String message) {
+        load();
+        TreeSet<String> commits = new TreeSet<>(_journal.getOrDefault(
+                message, new TreeSet<>()));
+        int lo = 0;
+        int hi = _count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            ByteBuffer entry = entry(mid);
+            int cmp = Codec.readString(entry).compareTo(message);
+            if (cmp == 0) {
+                readIDs(entry, commits);
+                break;
+            } else if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return commits;
+    }
+
+    /** Returns the IDs of the commits whose message contains every word
+     *  of WORDS, ignoring case, in order. */
+    static TreeSet<String> words(String words) {
+        load();
+        if (_words == null) {
+            _words = new HashMap<>();
+            for (int i = 0; i < _count; i += 1) {
+                addWords(Codec.readString(entry(i)));
+            }
+            for (String message : _journal.keySet()) {
+                addWords(message);
+            }
+        }
+        TreeSet<String> messages = null;
+        for (String word : words(words, true)) {
+            TreeSet<String> having = _words.getOrDefault(word,
+                    new TreeSet<>());
+            if (messages == null) {
+                messages = new TreeSet<>(having);
+            } else {
+                messages.retainAll(having);
+            }
+        }
+        TreeSet<String> commits = new TreeSet<>();
+        for (String message : messages) {
+            commits.addAll(exact(message));
+        }
+        return commits;
+    }
+
+    /** Returns the IDs of the commits whose message contains TEXT, in
+     *  order. */
+    static TreeSet<String> containing(String text) {
+        return commitsWhere(message -> message.contains(text));
+    }
+
+    /** Returns the IDs of the commits part of whose message matches
+     *  PATTERN, in order. */
+    static TreeSet<String> matching(Pattern pattern) {
+        return commitsWhere(message -> pattern.matcher(message).find());
+    }
+
+    /** Returns the message of each commit in the index, by ID. */
+    static HashMap<String, String> messages() {
+        HashMap<String, String> messages = new HashMap<>();
+        for (Map.Entry<String, TreeSet<String>> e : merged().entrySet()) {
+            for (String sha1 : e.getValue()) {
+                messages.put(sha1, e.getKey());
+            }
+        }
+        return messages;
+    }
+
+    /** Rewrites the index from the commits on disk. */
+    static void rebuild() {
+        TreeMap<String, TreeSet<String>> entries = new TreeMap<>();
+        for (Commit c : Commit.readAll(Commit.ids())) {
+            entries.computeIfAbsent(c.getMessage(), m -> new TreeSet<>())
+                   .add(c.getSHA1());
+        }
+        write(entries);
+        JOURNAL_FILE.delete();
+        invalidate();
+    }
+
+    /** Forgets the index read so far, so that it is read again when next
+     *  needed. */
+    static void invalidate() {
+        _index = null;
+        _journal = null;
+        _words = null;
+    }
+
+    /** Returns the IDs of the commits whose message satisfies TEST, in
+     *  order. */
+    private static TreeSet<String> commitsWhere(Predicate<String> test) {
+        load();
+        TreeSet<String> commits = new TreeSet<>();
+        for (int i = 0; i < _count; i += 1) {
+            ByteBuffer entry = entry(i);
+            if (test.test(Codec.readString(entry))) {
+                readIDs(entry, commits);
+            }
+        }
+        for (Map.Entry<String, TreeSet<String>> e : _journal.entrySet()) {
+            if (test.test(e.getKey())) {
+                commits.addAll(e.getValue());
+            }
+        }
+        return commits;
+    }
+
+    /** Adds MESSAGE under each of its words to the map of words. */
+    private static void addWords(String message) {
+        for (String word : words(message, false)) {
+            _words.computeIfAbsent(word, w -> new TreeSet<>()).add(message);
+        }
+    }
+
+    /** Returns the words of TEXT in lower case: its runs of letters and
+     *  digits. Unless KEEPEMPTY, an empty TEXT has no words; otherwise
+     *  it has the one empty word, which no message contains. */
+    private static TreeSet<String> words(String text, boolean keepEmpty) {
+        TreeSet<String> words = new TreeSet<>();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty() && keepEmpty) {
+            words.add("");
+        }
+        return words;
+    }
+
+    /** Returns the entry of the Ith message, positioned at its start. */
+    private static ByteBuffer entry(int i) {
+        int offset = _index.getInt(HEADER_SIZE + i * Integer.BYTES);
+        return _index.duplicate().position(offset);
+    }
+
+    /** Adds the IDs read from ENTRY, positioned after its message, to
+     *  COMMITS. */
+    private static void readIDs(ByteBuffer entry, TreeSet<String> commits) {
+        long n = Codec.readVarint(entry);
+        for (long k = 0; k < n; k += 1) {
+            commits.add(Codec.readID(entry));
+        }
+    }
+
+    /** Adds the commit with the given SHA1 and MESSAGE to the journal read
+     *  so far. */
+    private static void journal(String sha1, String message) {
+        _journal.computeIfAbsent(message, m -> new TreeSet<>()).add(sha1);
+        _journalSize += 1;
+        if (_words != null) {
+            addWords(message);
+        }
+    }
+
+    /** Returns the IDs of the commits with each message in the index and
+     *  the journal, in order of message. */
+    private static TreeMap<String, TreeSet<String>> merged() {
+        load();
+        TreeMap<String, TreeSet<String>> entries = new TreeMap<>();
+        for (int i = 0; i < _count; i += 1) {
+            ByteBuffer entry = entry(i);
+            TreeSet<String> commits = new TreeSet<>();
+            entries.put(Codec.readString(entry), commits);
+            readIDs(entry, commits);
+        }
+        for (Map.Entry<String, TreeSet<String>> e : _journal.entrySet()) {
+            entries.computeIfAbsent(e.getKey(), m -> new TreeSet<>())
+                   .addAll(e.getValue());
+        }
+        return entries;
+    }
+
+    /** Replaces INDEX_FILE with one holding ENTRIES, the IDs of the
+     *  commits with each message. */
+    private static void write(TreeMap<String, TreeSet<String>> entries) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int[] offsets = new int[entries.size()];
+        int start = HEADER_SIZE + offsets.length * Integer.BYTES;
+        File temp = Utils.join(Main.MAIN_FOLDER, "messages."
+                + ProcessHandle.current().pid() + ".tmp");
+        try {
+            DataOutputStream entryOut = new DataOutputStream(body);
+            int i = 0;
+            for (Map.Entry<String, TreeSet<String>> e : entries.entrySet()) {
+                offsets[i] = start + body.size();
+                i += 1;
+                Codec.writeString(entryOut, e.getKey());
+                Codec.writeVarint(entryOut, e.getValue().size());
+                for (String sha1 : e.getValue()) {
+                    Codec.writeID(entryOut, sha1);
+                }
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(offsets.length);
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                body.writeTo(out);
+            }
+            Files.move(temp.toPath(), INDEX_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Maps the index and reads the journal if that has not been done
+     *  yet, building the index first if it is missing or was written in
+     *  an older format. An entry of the journal cut short by a crash ends
+     *  it, and is cut off before the next entry is added; fsck finds the
+     *  commit it leaves out. */
+    private static void load() {
+        if (_index != null) {
+            return;
+        }
+        if (!INDEX_FILE.exists()) {
+            rebuild();
+        }
+        try (FileChannel channel = FileChannel.open(INDEX_FILE.toPath(),
+                StandardOpenOption.READ)) {
+            _index = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (_index.capacity() < HEADER_SIZE || _index.getInt(0) != MAGIC) {
+            rebuild();
+            load();
+            return;
+        }
+        _count = _index.getInt(Integer.BYTES);
+        _journal = new TreeMap<>();
+        _journalSize = 0;
+        _journalEnd = 0;
+        if (!JOURNAL_FILE.exists()) {
+            return;
+        }
+        ByteBuffer in;
+        try {
+            in = ByteBuffer.wrap(Files.readAllBytes(JOURNAL_FILE.toPath()));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            while (in.hasRemaining()) {
+                journal(Codec.readID(in), Codec.readString(in));
+                _journalEnd = in.position();
+            }
+        } catch (IllegalArgumentException excp) {
+            return;
+        }
+    }
+
+    /** Marks a message index. */
+    private static final int MAGIC = 0x474d5358;
+
+    /** Length of the header of the index. */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /** Number of journalled commits at which they are merged into the
+     *  index. */
+    private static final int JOURNAL_LIMIT = 1024;
+
+    /** The mapped index file, or null if not yet read. */
+    private static MappedByteBuffer _index;
+
+    /** Number of distinct messages in the index. */
+    private static int _count;
+
+    /** IDs of the journalled commits with each message. */
+    private static TreeMap<String, TreeSet<String>> _journal;
+
+    /** Number of entries read from or added to the journal. */
+    private static int _journalSize;
+
+    /** Length of the whole entries of the journal, in bytes. */
+    private static long _journalEnd;
+
+    /** Messages containing each word, or null if not yet built. */
+    private static HashMap<String, TreeSet<String>> _words;
+}
@@ -0,0 +1,32 @@
+package gitlet;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the journal of MessageIndex.
+ *  @author Riddhi Bagadiaa
+ */
+public class MessageIndexTest {
+
+    /** A journal entry cut short by a crash loses only its own commit,
+     *  which fsck restores, and entries added after it are found. */
+    @Test
+    public void tornJournal() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            String c1 = repo.commit("f", "1\n", "first");
+            String c2 = repo.commit("f", "2\n", "second");
+            repo.truncate(".gitlet/messages.journal", 3);
+            String c3 = repo.commit("f", "3\n", "third");
+            String c4 = repo.commit("f", "4\n", "fourth");
+            assertEquals(c1 + "\n", repo.run("find", "first"));
+            assertEquals(c3 + "\n", repo.run("find", "third"));
+            assertEquals(c4 + "\n", repo.run("find", "fourth"));
+            assertEquals("Found no commit with that message.\n",
+                    repo.run("find", "second"));
+            repo.run("fsck");
+            assertEquals(c2 + "\n", repo.run("find", "second"));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** @author Riddhi Bagadiaa
+ * Content-addressed store of file contents and commit trees, kept under
+ * .gitlet/objects.
+ * Every blob is named by the SHA-1 of its bytes, so identical contents
+ * are stored exactly once no matter how many commits refer to them.
+ * Objects are stored compressed; see Compression. The gc command moves
+ * them from their loose files into a Pack. */
+
+public class ObjectStore {
+
+    /** Directory of all the stored objects. */
+    static final File OBJECTS_FOLDER =
+            Utils.join(Main.MAIN_FOLDER, "objects");
+
+    /** Returns the ID that CONTENTS would be stored under. */
+    static String id(byte[] contents) {
+        return Utils.sha1(contents);
+    }
+
+    /** Returns the ID that the contents of FILE would be stored under,
+     *  reading it through a fixed-size buffer. */
+    static String id(File file) {
+        MessageDigest md = digest();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                md.update(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return Utils.sha1Hex(md.digest());
+    }
+
+    /** Stores CONTENTS, if not already present, and returns its ID. */
+    static String save(byte[] contents) {
+        String id = id(contents);
+        if (!contains(id)) {
+            File temp = tempFile();
+            Compression.write(temp, contents);
+            install(temp, id);
+        }
+        return id;
+    }
+
+    /** Stores the contents of FILE, if not already present, and returns
+     *  their ID. The file is hashed while it is compressed, through a
+     *  fixed-size buffer, so it is never held in memory whole. */
+    static String save(File file) {
+        MessageDigest md = digest();
+        File temp = tempFile();
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = Compression.deflating(
+                     new FileOutputStream(temp))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                md.update(buffer, 0, n);
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        String id = Utils.sha1Hex(md.digest());
+        install(temp, id);
+        return id;
+    }
+
+    /** Makes TEMP, a finished temporary file, the object with the given
+     *  ID. The rename is atomic, so it is safe to store the same contents
+     *  from several threads. */
+    private static void install(File temp, String id) {
+        File file = file(id);
+        try {
+            if (file.exists() || Pack.contains(id)) {
+                Files.delete(temp.toPath());
+                return;
+            }
+            file.getParentFile().mkdirs();
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a new, empty temporary file in OBJECTS_FOLDER. */
+    private static File tempFile() {
+        try {
+            OBJECTS_FOLDER.mkdirs();
+            return Files.createTempFile(OBJECTS_FOLDER.toPath(),
+                    "object", ".tmp").toFile();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a fresh SHA-1 digest. */
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+
+    /** Writes the contents of the object with the given ID to FILE,
+     *  creating or overwriting it, inflating them through a fixed-size
+     *  buffer rather than in memory. */
+    static void copyTo(String id, File file) {
+        try (InputStream in = open(id);
+             OutputStream out = new FileOutputStream(file)) {
+            in.transferTo(out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the contents of the object with the given ID. */
+    static byte[] read(String id) {
+        try (InputStream in = open(id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the contents of the object with the given ID as a String,
+     *  reading them only if they are not in the cache. */
+    static String readAsString(String id) {
+        return CACHE.get(id, k -> new String(read(k), StandardCharsets.UTF_8));
+    }
+
+    /** Returns a stream of the contents of the object with the given ID,
+     *  whether it is a loose file or packed. */
+    private static InputStream open(String id) throws IOException {
+        File file = file(id);
+        if (file.isFile()) {
+            return Compression.inflating(new FileInputStream(file));
+        }
+        InputStream in = Pack.open(id);
+        if (in == null) {
+            throw new IllegalArgumentException("no object " + id);
+        }
+        return in;
+    }
+
+    /** Returns true iff an object with the given ID is stored, loose or
+     *  packed. */
+    static boolean contains(String id) {
+        return file(id).isFile() || Pack.contains(id);
+    }
+
+    /** Returns the file holding the object with the given ID. */
+    private static File file(String id) {
+        return shard(OBJECTS_FOLDER, id);
+    }
+
+    /** Returns the file for ID among the shard directories of FOLDER,
+     *  which are named by the first Config.fanOut() digits of the IDs
+     *  they hold. */
+    static File shard(File folder, String id) {
+        return Utils.join(folder, id.substring(0, Config.fanOut()), id);
+    }
+
+    /** Size of the buffer that files are streamed through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Contents of blobs read recently as Strings. */
+    private static final Cache<String, String> CACHE =
+            new Cache<>("blobs", 32 << 20, Cache::size);
+}
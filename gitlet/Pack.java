@@ -0,0 +1,597 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.InflaterInputStream;
+
+/** @author Riddhi Bagadiaa
+ * Packfiles under .gitlet/pack. The gc command moves loose objects and
+ * commits into a single pack, storing each either whole or, if a similar
+ * object was packed just before it, as a Delta against that base.
+ *
+ * pack-X.pack holds MAGIC and then the entries, each a type byte (WHOLE
+ * or DELTA), for a delta the raw 20-byte ID of its base, the length of
+ * the compressed data as a long, and the data: the zlib-compressed
+ * object, or the zlib-compressed delta. pack-X.idx holds MAGIC, the
+ * number of entries and then, sorted by ID, each entry's raw ID, its
+ * kind (OBJECT or COMMIT) and its offset in the pack. Index files are
+ * memory-mapped and binary-searched, so a lookup touches a handful of
+ * pages however many objects are packed. */
+
+class Pack {
+
+    /** Directory of the packs. */
+    static final File PACK_FOLDER = Utils.join(Main.MAIN_FOLDER, "pack");
+
+    /** Kind of an ObjectStore entry: a blob or a tree. */
+    static final int OBJECT = 0;
+
+    /** Kind of a commit. */
+    static final int COMMIT = 1;
+
+    /** Runs the gc command with ARGS: packs every loose object and
+     *  commit, together with everything already packed, into one new
+     *  pack, and then deletes the loose files and the old packs, once no
+     *  command that reads them holds the shared Lock on the objects. */
+    static void gc(String... args) {
+        if (!Main.MAIN_FOLDER.exists()) {
+            throw Utils.error("Not in an initialized Gitlet directory.");
+        }
+        if (args.length != 1) {
+            throw Utils.error("Incorrect operands.");
+        }
+        TreeMap<String, Integer> kinds = new TreeMap<>();
+        HashMap<String, File> loose = new HashMap<>();
+        findLoose(ObjectStore.OBJECTS_FOLDER, OBJECT, kinds, loose);
+        findLoose(Commit.COMMITS_FOLDER, COMMIT, kinds, loose);
+        if (loose.isEmpty() && packs().size() <= 1) {
+            return;
+        }
+        for (PackFile pack : packs()) {
+            for (int i = 0; i < pack._count; i += 1) {
+                kinds.putIfAbsent(pack.id(i), pack.kind(i));
+            }
+        }
+
+        HashMap<String, String> names = new HashMap<>();
+        for (Commit c : Commit.readAll(Commit.ids())) {
+            nameTree(c.getTree(), "", names);
+        }
+        HashMap<String, Long> sizes = new HashMap<>();
+        for (String id : kinds.keySet()) {
+            sizes.put(id, loose.containsKey(id) ? loose.get(id).length()
+                          : storedLength(id));
+        }
+        List<String> order = new ArrayList<>(kinds.keySet());
+        order.sort(Comparator.comparing((String id) -> kinds.get(id))
+                   .thenComparing(id -> names.getOrDefault(id, ""))
+                   .thenComparing(id -> -sizes.get(id)));
+
+        PACK_FOLDER.mkdirs();
+        List<PackFile> oldPacks = packs();
+        TreeMap<String, Long> offsets = new TreeMap<>();
+        File temp = tempFile();
+        int deltas = write(temp, order, kinds, loose, offsets);
+        String name = "pack-" + Utils.sha1(new ArrayList<>(order));
+        File pack = Utils.join(PACK_FOLDER, name + ".pack");
+        File index = Utils.join(PACK_FOLDER, name + ".idx");
+        install(temp, pack);
+        temp = tempFile();
+        writeIndex(temp, offsets, kinds);
+        install(temp, index);
+
+        try (Lock objects = Lock.lockObjects()) {
+            for (PackFile old : oldPacks) {
+                if (!old._pack.equals(pack)) {
+                    old.index().delete();
+                    old._pack.delete();
+                }
+            }
+            for (File file : loose.values()) {
+                file.delete();
+            }
+        }
+        invalidate();
+        Repository.invalidate();
+        System.out.printf("Packed %d objects, %d as deltas.%n",
+                order.size(), deltas);
+    }
+
+    /** Adds the loose files in the shard directories of FOLDER, all of
+     *  the given KIND, to KINDS and LOOSE. */
+    private static void findLoose(File folder, int kind,
+                                  Map<String, Integer> kinds,
+                                  Map<String, File> loose) {
+        File[] dirs = folder.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            for (String id : Utils.plainFilenamesIn(dir)) {
+                if (id.length() == Utils.UID_LENGTH) {
+                    kinds.put(id, kind);
+                    loose.put(id, Utils.join(dir, id));
+                }
+            }
+        }
+    }
+
+    /** Records NAME as the name of the tree with the given ID in NAMES,
+     *  along with the names of all files and trees below it, unless the
+     *  tree was seen before. */
+    private static void nameTree(String id, String name,
+                                 Map<String, String> names) {
+        if (names.putIfAbsent(id, name) != null) {
+            return;
+        }
+        for (Map.Entry<String, String> e : Tree.read(id).entrySet()) {
+            if (e.getKey().endsWith(Tree.SEPARATOR)) {
+                nameTree(e.getValue(), e.getKey(), names);
+            } else {
+                names.putIfAbsent(e.getValue(), e.getKey());
+            }
+        }
+    }
+
+    /** Writes the objects with the IDs in ORDER, of the given KINDS, to
+     *  the pack file FILE, taking them from LOOSE where they are loose
+     *  files, and records where each starts in OFFSETS. Each object small
+     *  enough is tried as a delta against the WINDOW objects before it of
+     *  the same kind. Returns the number of deltas written. */
+    private static int write(File file, List<String> order,
+                             Map<String, Integer> kinds,
+                             Map<String, File> loose,
+                             Map<String, Long> offsets) {
+        ArrayDeque<Candidate> window = new ArrayDeque<>();
+        int deltas = 0;
+        try (FileOutputStream stream = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(stream, BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            long offset = Integer.BYTES;
+            for (String id : order) {
+                int kind = kinds.get(id);
+                byte[] data = readUpTo(id, loose.get(id), DELTA_LIMIT);
+                Candidate base = null;
+                byte[] delta = null;
+                if (data != null) {
+                    for (Candidate c : window) {
+                        if (c._kind != kind || c._depth >= MAX_DEPTH) {
+                            continue;
+                        }
+                        byte[] d = Delta.create(c._data, data);
+                        if (d.length < data.length / 2
+                            && (delta == null || d.length < delta.length)) {
+                            base = c;
+                            delta = d;
+                        }
+                    }
+                }
+                offsets.put(id, offset);
+                if (delta != null) {
+                    byte[] compressed = deflate(delta);
+                    out.writeByte(DELTA);
+                    out.write(Utils.sha1Bytes(base._id));
+                    out.writeLong(compressed.length);
+                    out.write(compressed);
+                    offset += 1 + SHA1_SIZE + Long.BYTES + compressed.length;
+                    deltas += 1;
+                } else {
+                    out.writeByte(WHOLE);
+                    offset += 1 + Long.BYTES
+                              + writeWhole(out, id, loose.get(id), data);
+                }
+                if (data != null) {
+                    window.addLast(new Candidate(id, kind, data,
+                            base == null ? 0 : base._depth + 1));
+                    if (window.size() > WINDOW) {
+                        window.removeFirst();
+                    }
+                }
+            }
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException excp) {
+            file.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return deltas;
+    }
+
+    /** Writes the length and compressed contents of the object with the
+     *  given ID to OUT: the loose file LOOSE as it is, if not null, else
+     *  DATA compressed, if not null, else the compressed data of the
+     *  packed entry. Returns the number of bytes written. */
+    private static long writeWhole(DataOutputStream out, String id,
+                                   File loose, byte[] data)
+        throws IOException {
+        if (loose != null) {
+            out.writeLong(loose.length());
+            Files.copy(loose.toPath(), out);
+            return loose.length();
+        }
+        if (data != null) {
+            byte[] compressed = deflate(data);
+            out.writeLong(compressed.length);
+            out.write(compressed);
+            return compressed.length;
+        }
+        for (PackFile pack : packs()) {
+            int i = pack.find(Utils.sha1Bytes(id));
+            if (i != -1) {
+                try (DataInputStream in = pack.entry(i)) {
+                    in.readByte();
+                    long length = in.readLong();
+                    out.writeLong(length);
+                    copy(in, out, length);
+                    return length;
+                }
+            }
+        }
+        throw new IllegalArgumentException("missing object " + id);
+    }
+
+    /** Writes the index of a pack whose objects, of the given KINDS,
+     *  start at OFFSETS, to FILE. */
+    private static void writeIndex(File file, TreeMap<String, Long> offsets,
+                                   Map<String, Integer> kinds) {
+        try (FileOutputStream stream = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(stream, BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Long> e : offsets.entrySet()) {
+                out.write(Utils.sha1Bytes(e.getKey()));
+                out.writeInt(kinds.get(e.getKey()));
+                out.writeLong(e.getValue());
+            }
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException excp) {
+            file.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns true iff the object or commit with the given ID is
+     *  packed. */
+    static boolean contains(String id) {
+        byte[] key = Utils.sha1Bytes(id);
+        for (PackFile pack : packs()) {
+            if (pack.find(key) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns a stream of the contents of the packed object or commit
+     *  with the given ID, or null if it is not packed. A whole entry is
+     *  inflated as it is read; a delta is resolved in memory. */
+    static InputStream open(String id) {
+        byte[] key = Utils.sha1Bytes(id);
+        for (PackFile pack : packs()) {
+            int i = pack.find(key);
+            if (i != -1) {
+                try {
+                    return pack.open(i);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns the IDs of all packed entries of the given KIND, in
+     *  order. */
+    static List<String> ids(int kind) {
+        TreeSet<String> ids = new TreeSet<>();
+        for (PackFile pack : packs()) {
+            for (int i = 0; i < pack._count; i += 1) {
+                if (pack.kind(i) == kind) {
+                    ids.add(pack.id(i));
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /** Forgets the packs read so far, so that they are found again when
+     *  next needed. */
+    static synchronized void invalidate() {
+        _packs = null;
+    }
+
+    /** Returns the packs in PACK_FOLDER, mapping their indexes if not
+     *  done yet. */
+    private static synchronized List<PackFile> packs() {
+        if (_packs == null) {
+            List<PackFile> packs = new ArrayList<>();
+            List<String> names = Utils.plainFilenamesIn(PACK_FOLDER);
+            if (names != null) {
+                for (String name : names) {
+                    if (name.endsWith(".idx")) {
+                        packs.add(new PackFile(Utils.join(PACK_FOLDER,
+                                name.substring(0, name.length() - 4)
+                                + ".pack")));
+                    }
+                }
+            }
+            _packs = packs;
+        }
+        return _packs;
+    }
+
+    /** Returns the contents of the object or commit with the given ID,
+     *  read from the loose file LOOSE if it is not null, or null if they
+     *  are longer than LIMIT bytes. */
+    private static byte[] readUpTo(String id, File loose, int limit)
+        throws IOException {
+        InputStream stream = loose != null
+            ? Compression.inflating(new FileInputStream(loose)) : open(id);
+        try (InputStream in = stream) {
+            byte[] data = in.readNBytes(limit + 1);
+            return data.length > limit ? null : data;
+        }
+    }
+
+    /** Returns the length of the data stored for the packed entry with
+     *  the given ID. */
+    private static long storedLength(String id) {
+        for (PackFile pack : packs()) {
+            int i = pack.find(Utils.sha1Bytes(id));
+            if (i != -1) {
+                try (DataInputStream in = pack.entry(i)) {
+                    if (in.readByte() == DELTA) {
+                        in.skipNBytes(SHA1_SIZE);
+                    }
+                    return in.readLong();
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+        return 0;
+    }
+
+    /** Returns DATA compressed. */
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = Compression.deflating(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Copies LENGTH bytes from IN to OUT. */
+    private static void copy(InputStream in, OutputStream out, long length)
+        throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (length > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (n == -1) {
+                throw new IOException("truncated pack");
+            }
+            out.write(buffer, 0, n);
+            length -= n;
+        }
+    }
+
+    /** Returns a new, empty temporary file in PACK_FOLDER. */
+    private static File tempFile() {
+        try {
+            return Files.createTempFile(PACK_FOLDER.toPath(), "pack",
+                    ".tmp").toFile();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Renames the finished file TEMP to FILE atomically. */
+    private static void install(File temp, File file) {
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** One pack and its memory-mapped index. */
+    private static class PackFile {
+        /** The pack in the file PACK, with its index beside it. */
+        PackFile(File pack) {
+            _pack = pack;
+            try (FileChannel channel = FileChannel.open(index().toPath(),
+                    StandardOpenOption.READ)) {
+                _index = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (_index.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("bad pack index");
+            }
+            _count = _index.getInt(Integer.BYTES);
+        }
+
+        /** Returns the index file of this pack. */
+        File index() {
+            String name = _pack.getName();
+            return Utils.join(PACK_FOLDER,
+                    name.substring(0, name.length() - 5) + ".idx");
+        }
+
+        /** Returns the number of the entry whose raw ID is KEY, or -1 if
+         *  there is none. */
+        int find(byte[] key) {
+            int lo = 0;
+            int hi = _count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(mid, key);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /** Returns the order of the ID of entry I relative to KEY. */
+        private int compare(int i, byte[] key) {
+            int start = HEADER_SIZE + i * ENTRY_SIZE;
+            for (int k = 0; k < SHA1_SIZE; k += 1) {
+                int c = Byte.toUnsignedInt(_index.get(start + k))
+                        - Byte.toUnsignedInt(key[k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        /** Returns the ID of entry I. */
+        String id(int i) {
+            byte[] id = new byte[SHA1_SIZE];
+            _index.get(HEADER_SIZE + i * ENTRY_SIZE, id);
+            return Utils.sha1Hex(id);
+        }
+
+        /** Returns the kind of entry I. */
+        int kind(int i) {
+            return _index.getInt(HEADER_SIZE + i * ENTRY_SIZE + SHA1_SIZE);
+        }
+
+        /** Returns the offset of entry I in the pack. */
+        long offset(int i) {
+            return _index.getLong(HEADER_SIZE + i * ENTRY_SIZE + SHA1_SIZE
+                    + Integer.BYTES);
+        }
+
+        /** Returns a stream of the pack starting at entry I. */
+        DataInputStream entry(int i) throws IOException {
+            FileChannel channel = FileChannel.open(_pack.toPath(),
+                    StandardOpenOption.READ);
+            channel.position(offset(i));
+            return new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel), BUFFER_SIZE));
+        }
+
+        /** Returns a stream of the contents of entry I. */
+        InputStream open(int i) throws IOException {
+            DataInputStream in = entry(i);
+            if (in.readByte() == WHOLE) {
+                in.readLong();
+                return new InflaterInputStream(in);
+            }
+            byte[] base = new byte[SHA1_SIZE];
+            byte[] delta;
+            try (InputStream d = in) {
+                d.readNBytes(base, 0, SHA1_SIZE);
+                in.readLong();
+                delta = new InflaterInputStream(d).readAllBytes();
+            }
+            InputStream baseStream = Pack.open(Utils.sha1Hex(base));
+            if (baseStream == null) {
+                throw new IOException("missing delta base");
+            }
+            try (InputStream b = baseStream) {
+                return new ByteArrayInputStream(
+                        Delta.apply(b.readAllBytes(), delta));
+            }
+        }
+
+        /** The pack file. */
+        private final File _pack;
+        /** The mapped index file. */
+        private final MappedByteBuffer _index;
+        /** Number of entries in the pack. */
+        private final int _count;
+    }
+
+    /** An object recently written to a pack, which later objects may be
+     *  stored as deltas against. */
+    private static class Candidate {
+        /** The object with the given ID, KIND and contents DATA, stored
+         *  at delta depth DEPTH. */
+        Candidate(String id, int kind, byte[] data, int depth) {
+            _id = id;
+            _kind = kind;
+            _data = data;
+            _depth = depth;
+        }
+
+        /** ID of the object. */
+        private final String _id;
+        /** Kind of the object. */
+        private final int _kind;
+        /** Contents of the object. */
+        private final byte[] _data;
+        /** Length of the chain of deltas leading to the object. */
+        private final int _depth;
+    }
+
+    /** Marks a Gitlet pack or pack index. */
+    private static final int MAGIC = 0x4750414b;
+
+    /** Type of an entry stored whole. */
+    private static final int WHOLE = 0;
+
+    /** Type of an entry stored as a delta. */
+    private static final int DELTA = 1;
+
+    /** Length of a raw ID. */
+    private static final int SHA1_SIZE = Utils.UID_LENGTH / 2;
+
+    /** Length of the header of an index file. */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /** Length of one entry of an index file. */
+    private static final int ENTRY_SIZE = SHA1_SIZE + Integer.BYTES
+            + Long.BYTES;
+
+    /** Number of preceding objects each object is tried against. */
+    private static final int WINDOW = 10;
+
+    /** Longest chain of deltas allowed, bounding the work of a read. */
+    private static final int MAX_DEPTH = 10;
+
+    /** Largest object that is tried as a delta, in bytes. */
+    private static final int DELTA_LIMIT = 32 << 20;
+
+    /** Size of the buffers pack data is streamed through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Packs found so far, or null if not yet looked for. */
+    private static List<PackFile> _packs;
+}
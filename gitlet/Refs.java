@@ -0,0 +1,201 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/** @author Riddhi Bagadiaa
+ * The branches and the current branch, all kept in the one file
+ * .gitlet/packed-refs. Its first line is "HEAD NAME", naming the current
+ * branch, whose head is the head commit; each further line is "ID NAME",
+ * giving the commit ID at the head of branch NAME, in order of name.
+ *
+ * Every change writes the whole file anew to a temporary file, forces it
+ * to disk and renames it over packed-refs, so that a crash leaves either
+ * the old refs or the new ones and never a mixture. Changes are
+ * compare-and-swap: the file is read again just before it is replaced,
+ * and if the ref being changed no longer has the value it had when the
+ * refs were first read, because another process moved it, the change
+ * fails rather than undo that process's work. Other refs that process
+ * changed are kept. */
+
+class Refs {
+
+    /** File holding the refs. */
+    static final File REFS_FILE = Utils.join(Main.MAIN_FOLDER, "packed-refs");
+
+    /** Returns the name of the current branch. */
+    static String currentBranch() {
+        load();
+        return _current;
+    }
+
+    /** Returns the ID of the head commit. */
+    static String head() {
+        return branch(currentBranch());
+    }
+
+    /** Returns the ID of the commit at the head of the branch NAME, or
+     *  null if there is no such branch. */
+    static String branch(String name) {
+        load();
+        return _branches.get(name);
+    }
+
+    /** Returns true iff there is a branch NAME. */
+    static boolean exists(String name) {
+        return branch(name) != null;
+    }
+
+    /** Returns the head of every branch, in order of name. */
+    static TreeMap<String, String> branches() {
+        load();
+        return new TreeMap<>(_branches);
+    }
+
+    /** Makes the branch NAME, which must exist, the current one. */
+    static void setCurrentBranch(String name) {
+        load();
+        String expected = _current;
+        TreeMap<String, String> branches = new TreeMap<>();
+        String current = read(branches);
+        if (!current.equals(expected)) {
+            throw Utils.error("The current branch has changed since it was"
+                    + " read; try again.");
+        }
+        _current = name;
+        _branches = branches;
+        write();
+    }
+
+    /** Moves the head of the branch NAME, making it if need be, to the
+     *  commit with the given ID. */
+    static void setBranch(String name, String id) {
+        if (name.isEmpty() || name.contains("\n")) {
+            throw Utils.error("Invalid branch name.");
+        }
+        swap(name, id);
+    }
+
+    /** Removes the branch NAME. */
+    static void delete(String name) {
+        swap(name, null);
+    }
+
+    /** Starts the refs of a new repository, whose current branch is NAME
+     *  but which has no branches yet. */
+    static void init(String name) {
+        _current = name;
+        _branches = new TreeMap<>();
+        write();
+    }
+
+    /** Forgets the refs read so far, so that they are read again when
+     *  next needed. */
+    static void invalidate() {
+        _current = null;
+        _branches = null;
+    }
+
+    /** Sets the branch NAME to ID, or removes it if ID is null, provided
+     *  that on disk it still has the value first read. */
+    private static void swap(String name, String id) {
+        load();
+        String expected = _branches.get(name);
+        TreeMap<String, String> branches = new TreeMap<>();
+        String current = read(branches);
+        if (!Objects.equals(branches.get(name), expected)) {
+            throw Utils.error("Branch %s has moved since it was read; try"
+                    + " again.", name);
+        }
+        if (id == null) {
+            branches.remove(name);
+        } else {
+            branches.put(name, id);
+        }
+        _current = current;
+        _branches = branches;
+        write();
+    }
+
+    /** Writes the refs to REFS_FILE atomically and durably. */
+    private static void write() {
+        StringBuilder refs = new StringBuilder();
+        refs.append(HEAD).append(' ').append(_current).append('\n');
+        for (Map.Entry<String, String> e : _branches.entrySet()) {
+            refs.append(e.getValue()).append(' ').append(e.getKey())
+                .append('\n');
+        }
+        Path temp;
+        try {
+            temp = Files.createTempFile(Main.MAIN_FOLDER.toPath(),
+                    "packed-refs", ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                out.write(refs.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp, REFS_FILE.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        syncDirectory();
+    }
+
+    /** Forces the entry of REFS_FILE in its directory to disk, so that
+     *  the rename survives a crash. Does nothing where directories cannot
+     *  be opened. */
+    private static void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(Main.MAIN_FOLDER.toPath(),
+                StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException excp) {
+            return;
+        }
+    }
+
+    /** Reads the refs if that has not been done yet. */
+    private static void load() {
+        if (_branches != null) {
+            return;
+        }
+        TreeMap<String, String> branches = new TreeMap<>();
+        _current = read(branches);
+        _branches = branches;
+    }
+
+    /** Reads REFS_FILE as it is now, putting the head of each branch in
+     *  BRANCHES, and returns the name of the current branch. */
+    private static String read(TreeMap<String, String> branches) {
+        String[] lines = Utils.readContentsAsString(REFS_FILE).split("\n");
+        for (int i = 1; i < lines.length; i += 1) {
+            int space = lines[i].indexOf(' ');
+            branches.put(lines[i].substring(space + 1),
+                    lines[i].substring(0, space));
+        }
+        return lines[0].substring(HEAD.length() + 1);
+    }
+
+    /** Key of the line naming the current branch. */
+    private static final String HEAD = "HEAD";
+
+    /** Name of the current branch, or null if not yet read. */
+    private static String _current;
+
+    /** Head of each branch by name, or null if not yet read. */
+    private static TreeMap<String, String> _branches;
+}
@@ -1,13 +1,25 @@
 package gitlet;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.List;
-import java.util.Arrays;
+import java.util.Objects;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /** @author Riddhi Bagadiaa
  * Main command in the Repository. */
@@ -20,196 +32,264 @@ public class Repository {
         checkArgs("init", 1, args);
         if (!Main.MAIN_FOLDER.exists()) {
             Main.MAIN_FOLDER.mkdirs();
-            Main.BRANCH_HEADS.mkdirs();
-            Main.STAGING_AREA.mkdirs();
             Commit.COMMITS_FOLDER.mkdirs();
-            Main.REMOVE_FROM_COMMIT.mkdirs();
-            makeSubDirs();
-            Utils.writeContents(Main.CURRENT_BRANCH, "master");
+            ObjectStore.OBJECTS_FOLDER.mkdirs();
+            Config.setFanOut(Config.DEFAULT_FAN_OUT);
+            Refs.init("master");
+            invalidate();
 
-            makeCommit("initial commit", null, null, null, null);
+            makeCommit("initial commit", null, null);
         } else {
-            System.out.println("A Gitlet version-control"
+            throw Utils.error("A Gitlet version-control"
                     + " system already exists in the current directory.");
-            System.exit(0);
         }
     }
 
-    /** Makes subdirectories. */
-    private static void makeSubDirs() {
-        Utils.join(Commit.COMMITS_FOLDER, "0").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "1").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "2").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "3").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "4").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "5").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "6").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "7").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "8").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "9").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "a").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "b").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "c").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "d").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "e").mkdirs();
-        Utils.join(Commit.COMMITS_FOLDER, "f").mkdirs();
-    }
-
-    /** Adds to the Repository with ARGS. */
+    /** Adds to the Repository with ARGS, each of which after the first
+     *  is a file name, a glob pattern matching working files, or "." for
+     *  every working file. Files are read and hashed in parallel, and
+     *  only those with contents not yet stored are compressed. */
     public static void add(String... args) {
-        checkArgs("add", 2, args);
+        checkArgsAtLeast("add", 2, args);
 
-        String fileName = args[1];
-        File addedFile = Utils.join(Main.STAGING_AREA, fileName);
-        File fileInDir = Utils.join(Main.CWD, fileName);
+        Commit headCommit = headCommit();
+        HashMap<String, String> blobs = headCommit.getFileToBlob();
+
+        TreeSet<String> fileNames = new TreeSet<>();
+        for (int i = 1; i < args.length; i += 1) {
+            fileNames.addAll(expandPath(args[i], blobs));
+        }
 
-        String headPath = Utils.readContentsAsString(Main.HEAD);
-        Commit headCommit = Utils.readObject(new File(headPath), Commit.class);
-        HashMap<String, byte[]> blobs = headCommit.getFileToBlob();
+        Map<String, String> dirFileIDs = Index.hashAll(fileNames);
+        fileNames.parallelStream().forEach(fileName -> {
+            String id = dirFileIDs.get(fileName);
+            if (id != null && !id.equals(blobs.get(fileName))
+                    && !ObjectStore.contains(id)) {
+                dirFileIDs.put(fileName,
+                        ObjectStore.save(Utils.join(Main.CWD, fileName)));
+            }
+        });
+        for (String fileName : fileNames) {
+            addFile(fileName, dirFileIDs.get(fileName), blobs);
+        }
+    }
 
-        if (!blobs.keySet().contains(fileName) && !fileInDir.exists()) {
-            System.out.println("File does not exist.");
-            System.exit(0);
+    /** Returns the names of the files that the add operand PATH stands
+     *  for, given the files BLOBS of the head commit. A glob or directory
+     *  that stands for no files does not exist. */
+    private static List<String> expandPath(String path,
+                                           HashMap<String, String> blobs) {
+        if (path.equals(".")) {
+            return workingFiles();
+        }
+        if (path.matches(".*[*?\\[{].*")) {
+            PathMatcher matcher =
+                    FileSystems.getDefault().getPathMatcher("glob:" + path);
+            List<String> matches = new ArrayList<>();
+            for (String f : workingFiles()) {
+                if (matcher.matches(Paths.get(f))) {
+                    matches.add(f);
+                }
+            }
+            if (matches.isEmpty()) {
+                throw Utils.error("File does not exist.");
+            }
+            return matches;
+        }
+        path = path.replaceAll("^(\\./)+|/+$", "");
+        if (Utils.join(Main.CWD, path).isDirectory()) {
+            List<String> files = new ArrayList<>();
+            for (String f : workingFiles()) {
+                if (f.startsWith(path + Tree.SEPARATOR)) {
+                    files.add(f);
+                }
+            }
+            if (files.isEmpty()) {
+                throw Utils.error("File does not exist.");
+            }
+            return files;
         }
+        if (!blobs.containsKey(path) && !Utils.join(Main.CWD, path).exists()) {
+            throw Utils.error("File does not exist.");
+        }
+        return Collections.singletonList(path);
+    }
 
-        if (Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT)
-                .contains(fileName)) {
-            Utils.join(Main.REMOVE_FROM_COMMIT, fileName).delete();
+    /** Stages the file FILENAME, whose working contents have the ID
+     *  DIRFILEID (null if it has none), given the files BLOBS of the head
+     *  commit. */
+    private static void addFile(String fileName, String dirFileID,
+                                HashMap<String, String> blobs) {
+        if (Index.removed().containsKey(fileName)) {
+            Index.unstageRemoval(fileName);
             return;
         }
+        if (dirFileID == null) {
+            return;
+        }
+        if (dirFileID.equals(blobs.get(fileName))) {
+            Index.unstage(fileName);
+            return;
+        }
+        if (dirFileID.equals(Index.staged().get(fileName))) {
+            return;
+        }
+        Index.stage(fileName, dirFileID);
+    }
 
-        byte[] contentsOfDirFile;
-        if (!fileInDir.exists()) {
-            contentsOfDirFile = null;
-        } else {
-            contentsOfDirFile = Utils.readContents(fileInDir);
+    /** Returns the '/'-separated paths of all files in the working
+     *  directory and its subdirectories, outside .gitlet, in order. */
+    static List<String> workingFiles() {
+        List<String> files = new ArrayList<>();
+        listFiles(Main.CWD, "", files);
+        Collections.sort(files);
+        return files;
+    }
+
+    /** Adds the paths of the files under DIR to FILES, each starting
+     *  with PREFIX. */
+    private static void listFiles(File dir, String prefix,
+                                  List<String> files) {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            File f = new File(dir, name);
+            if (f.isFile()) {
+                files.add(prefix + name);
+            } else if (f.isDirectory()
+                    && !(prefix.isEmpty() && name.equals(".gitlet"))) {
+                listFiles(f, prefix + name + Tree.SEPARATOR, files);
+            }
         }
+    }
 
-        if (blobs.containsKey(fileName)) {
-            if (Arrays.equals(blobs.get(fileName), contentsOfDirFile)) {
-                if (Utils.plainFilenamesIn(Main.STAGING_AREA)
-                        .contains(fileName)) {
-                    addedFile.delete();
-                }
-                return;
+    /** Returns the working file at PATH, creating any directories it
+     *  needs and removing a directory left at PATH itself, which
+     *  checkWritable has found holds no files. */
+    private static File workingFile(String path) {
+        File file = Utils.join(Main.CWD, path);
+        file.getParentFile().mkdirs();
+        if (file.isDirectory()) {
+            deleteTree(file);
+        }
+        return file;
+    }
+
+    /** Deletes the directory DIR, which holds only directories. */
+    private static void deleteTree(File dir) {
+        for (File sub : dir.listFiles()) {
+            deleteTree(sub);
+        }
+        dir.delete();
+    }
+
+    /** Reports an untracked file in the way unless each of the working
+     *  files at PATHS can be written once those at DELETED are deleted:
+     *  a directory at its path must hold no file but those, and none of
+     *  its directories may be a file other than those. */
+    private static void checkWritable(Collection<String> paths,
+                                      Set<String> deleted) {
+        for (String path : paths) {
+            File file = Utils.join(Main.CWD, path);
+            boolean blocked = file.isDirectory()
+                    && !holdsOnly(file, path, deleted);
+            for (int k = path.indexOf(Tree.SEPARATOR); k != -1 && !blocked;
+                 k = path.indexOf(Tree.SEPARATOR, k + 1)) {
+                String dir = path.substring(0, k);
+                blocked = Utils.join(Main.CWD, dir).isFile()
+                        && !deleted.contains(dir);
+            }
+            if (blocked) {
+                throw Utils.error("There is an untracked file in the way;"
+                        + " delete it or add it first.");
             }
         }
+    }
 
-        if (addedFile.exists()) {
-            if (Arrays.equals(Utils.readContents(
-                    addedFile), contentsOfDirFile)) {
-                return;
+    /** Returns true iff every file under the directory DIR, at PATH, is
+     *  one of DELETED. */
+    private static boolean holdsOnly(File dir, String path,
+                                     Set<String> deleted) {
+        for (File sub : dir.listFiles()) {
+            String subPath = path + Tree.SEPARATOR + sub.getName();
+            if (sub.isDirectory() ? !holdsOnly(sub, subPath, deleted)
+                    : !deleted.contains(subPath)) {
+                return false;
             }
         }
-        Utils.writeContents(addedFile, contentsOfDirFile);
+        return true;
+    }
+
+    /** Deletes the working file at PATH and whichever of its directories
+     *  that leaves empty, and forgets its stat data. */
+    private static void deleteWorkingFile(String path) {
+        File file = Utils.join(Main.CWD, path);
+        file.delete();
+        Index.forget(path);
+        File dir = file.getParentFile();
+        while (!dir.equals(Main.CWD) && dir.delete()) {
+            dir = dir.getParentFile();
+        }
     }
 
     /** Commits to the Repository with ARGS. */
     public static void commit(String... args) {
         if (args.length < 2 || args[1].length() == 0) {
-            System.out.println("Please enter a commit message.");
-            System.exit(0);
+            throw Utils.error("Please enter a commit message.");
         }
         checkArgs("commit", 2, args);
 
         String logMessage = args[1];
-        List<String> addedFiles = new ArrayList<>();
-        List<String> removedFiles = new ArrayList<>();
-        if (Utils.plainFilenamesIn(Main.STAGING_AREA).isEmpty()
-                && Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT).isEmpty()) {
-            System.out.println("No changes added to the commit.");
-            System.exit(0);
-        } else {
-            addedFiles = Utils.plainFilenamesIn(Main.STAGING_AREA);
-            removedFiles = Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT);
-
+        if (Index.staged().isEmpty() && Index.removed().isEmpty()) {
+            throw Utils.error("No changes added to the commit.");
         }
-        File currentHead = new File(Utils.readContentsAsString(Main.HEAD));
-        Commit headCommit = Utils.readObject(currentHead, Commit.class);
+        Commit headCommit = headCommit();
 
-        makeCommit(logMessage, headCommit, addedFiles, removedFiles, null);
+        makeCommit(logMessage, headCommit, null);
     }
 
-    /** Makes the commit with the given LOG,
-     *  PREVCOMMIT, ADDEDFILES, REMOVEDFILES, SECONDPARENT. */
+    /** Makes the commit with the given LOG, PREVCOMMIT and SECONDPARENT
+     *  from the files of PREVCOMMIT and the staging area, which it then
+     *  empties. */
     private static void makeCommit(String log, Commit prevCommit,
-                                   List<String> addedFiles, List<String>
-                                           removedFiles, String secondParent) {
-        HashMap<String, byte[]> fileToBlob = new HashMap();
+                                   String secondParent) {
+        HashMap<String, String> fileToBlob = new HashMap();
         if (prevCommit != null) {
-            for (String originalFiles : prevCommit.getFileToBlob().keySet()) {
-                if (removedFiles == null
-                        || !removedFiles.contains(originalFiles)) {
-                    fileToBlob.put(originalFiles, prevCommit.
-                            getFileToBlob().get(originalFiles));
-                }
-                Utils.join(Main.REMOVE_FROM_COMMIT, originalFiles).delete();
-            }
-        }
-        if (addedFiles != null) {
-            String newContent = "";
-            for (String fileName : addedFiles) {
-                File txtFile = Utils.join(Main.STAGING_AREA, fileName);
-                byte[] blob = Utils.readContents(txtFile);
-                fileToBlob.put(fileName, blob);
-                txtFile.delete();
-                newContent = newContent + "\n" + fileName;
-            }
+            fileToBlob.putAll(prevCommit.getFileToBlob());
         }
+        fileToBlob.keySet().removeAll(Index.removed().keySet());
+        fileToBlob.putAll(Index.staged());
+        Index.clearStage();
         Commit c;
         if (prevCommit == null) {
             c = new Commit(log, null, "master", fileToBlob, secondParent);
         } else {
             c = new Commit(log, prevCommit.getSHA1(),
-                    Utils.readContentsAsString(Main.CURRENT_BRANCH),
+                    currentBranch(),
                     fileToBlob, secondParent);
         }
-        byte[] cArray = Utils.serialize(c);
-        String sha1 = c.getSHA1();
-        String subDir = sha1.substring(0, 1);
-        File dir = Utils.join(Commit.COMMITS_FOLDER, subDir);
-        Utils.writeContents(Utils.join(dir, sha1), cArray);
-        updateHeads(Utils.join(dir, sha1));
+        c.write();
+        CommitGraph.append(c);
+        CommitIndex.add(c.getSHA1());
+        MessageIndex.add(c.getSHA1(), log);
+        updateHead(c.getSHA1());
     }
 
-    /** Updates heads of the branch with the given FILE. */
-    public static void updateHeads(File file) {
-        Utils.writeContents(Main.HEAD, file.getPath());
-        Utils.writeContents(Utils.join(Main.BRANCH_HEADS,
-                Utils.readContentsAsString(Main.CURRENT_BRANCH)),
-                file.getPath());
+    /** Moves the head of the current branch to the commit with the given
+     *  ID. */
+    static void updateHead(String id) {
+        Refs.setBranch(currentBranch(), id);
+        invalidate();
     }
 
-    /** Gives log of Repository with ARGS. */
+    /** Gives log of Repository with ARGS, which may limit it by the
+     *  options of History. */
     public static void log(String... args) {
-        checkArgs("log", 1, args);
-
-        File currentHead = new File(Utils.readContentsAsString(Main.HEAD));
-        Commit headCommit = Utils.readObject(currentHead, Commit.class);
-        while (headCommit.getParent() != null) {
-            System.out.println("===");
-            System.out.println("commit " + headCommit.getSHA1());
-            if (headCommit.getSecondParent() != null) {
-                System.out.println("Merge: " + headCommit.getParent()
-                        .substring(0, 7)
-                        + " " + headCommit.getSecondParent().substring(0, 7));
-            }
-            System.out.println("Date: " + headCommit.getTimeStamp());
-            System.out.println(headCommit.getMessage());
-            System.out.println();
-
-            File parentFile = Utils.join(Commit.COMMITS_FOLDER,
-                    headCommit.getParent().substring(0, 1),
-                    headCommit.getParent());
-            headCommit = Utils.readObject(parentFile, Commit.class);
-        }
-
-        System.out.println("===");
-        System.out.println("commit " + headCommit.getSHA1());
-        System.out.println("Date: " + headCommit.getTimeStamp());
-        System.out.println(headCommit.getMessage());
-        System.out.println();
-
+        checkArgsAtLeast("log", 1, args);
+        new History(args).print(
+                History.firstParents(Refs.head()));
     }
 
     /** Checkout Repository parts with ARGS. */
@@ -218,233 +298,208 @@ public class Repository {
 
             checkArgs("checkout", 3, args);
             if (args[1].equals("--")) {
-                File currentHead = new File(
-                        Utils.readContentsAsString(Main.HEAD));
-                Commit headCommit = Utils.readObject(currentHead, Commit.class);
+                Commit headCommit = headCommit();
                 checkoutFile(args[2], headCommit);
             } else {
-                System.out.println("Incorrect operands.");
-                System.exit(0);
+                throw Utils.error("Incorrect operands.");
             }
         } else if (args.length == 4) {
 
             checkArgs("checkout", 4, args);
             if (args[2].equals("--")) {
-                File commitSubDir = Utils.join(Commit.COMMITS_FOLDER,
-                        args[1].substring(0, 1));
-
-                String commitID = ifFileExists(args[1], commitSubDir);
+                String commitID = CommitIndex.resolve(args[1]);
 
-                File getCommit = Utils.join(commitSubDir, commitID);
-                Commit commitObject = Utils.readObject(getCommit, Commit.class);
+                Commit commitObject = Commit.read(commitID);
                 checkoutFile(args[3], commitObject);
             } else {
-                System.out.println("Incorrect operands.");
-                System.exit(0);
+                throw Utils.error("Incorrect operands.");
             }
 
         } else if (args.length == 2) {
             checkArgs("checkout", 2, args);
             checkoutBranch(args[1]);
         } else {
-            System.out.println("Incorrect operands.");
-            System.exit(0);
-        }
-    }
-
-    /** Checks if file with ID in SUBDIR exists return the file. */
-    private static String ifFileExists(String id, File subDir) {
-
-        int sha1length = id.length();
-        boolean exists = false;
-        String commitID = "";
-        if (sha1length != FORTY) {
-            for (String commitName : Utils.plainFilenamesIn(subDir)) {
-                if (commitName.substring(0, sha1length).equals(id)) {
-                    exists = true;
-                    commitID = commitName;
-                    break;
-                }
-            }
-            if (!exists) {
-                System.out.println("No commit with that id exists.");
-                System.exit(0);
-            }
-        } else {
-            if (!Utils.plainFilenamesIn(subDir).contains(id)) {
-                System.out.println("No commit with that id exists.");
-                System.exit(0);
-            } else {
-                commitID = id;
-            }
+            throw Utils.error("Incorrect operands.");
         }
-        return commitID;
     }
 
     /** Checkout file with FILENAME and THECOMMIT. */
     private static void checkoutFile(String fileName, Commit theCommit) {
-        HashMap<String, byte[]> committedFiles = theCommit.getFileToBlob();
-        if (committedFiles.containsKey(fileName)) {
-            File fileInDir = new File(Main.CWD, fileName);
-            if (committedFiles.get(fileName) == null) {
-                fileInDir.delete();
-                return;
-            }
-            byte[] changeContentTo = committedFiles.get(fileName);
-
-            Utils.writeContents(fileInDir, new String(changeContentTo));
-            if (Utils.plainFilenamesIn(Main.STAGING_AREA).contains(fileName)) {
-                Utils.join(Main.STAGING_AREA, fileName).delete();
-            }
-        } else {
-            System.out.println("File does not exist in that commit.");
-            System.exit(0);
+        String blob = theCommit.getFileToBlob().get(fileName);
+        if (blob == null) {
+            throw Utils.error("File does not exist in that commit.");
         }
+        ObjectStore.copyTo(blob, workingFile(fileName));
+        Index.record(fileName, blob);
+        Index.unstage(fileName);
     }
 
     /** Checkout branch with BRANCHNAME. */
     private static void checkoutBranch(String branchName) {
-        if (!Utils.plainFilenamesIn(Main.BRANCH_HEADS).contains(branchName)) {
-            System.out.println("No such branch exists.");
-            System.exit(0);
-        }
-
-        List<String> filesForRemoval =
-                Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT);
-        while (filesForRemoval.size() != 0) {
-            Utils.writeContents(Utils.join(Main.CWD, filesForRemoval.get(0)),
-                    Utils.readContentsAsString(Utils.join(
-                            Main.REMOVE_FROM_COMMIT, filesForRemoval.get(0))));
-            Utils.join(Main.REMOVE_FROM_COMMIT,
-                    filesForRemoval.get(0)).delete();
-            filesForRemoval.remove(0);
-        }
-        String headPath = Utils.readContentsAsString(Main.HEAD);
-        Commit headCommit = Utils.readObject(new File(headPath), Commit.class);
-
-        String branchHeadPath = Utils.readContentsAsString(
-                Utils.join(Main.BRANCH_HEADS, branchName));
-        Commit branchHead = Utils.readObject(
-                new File(branchHeadPath), Commit.class);
-
-        if (branchName.equals(Utils.
-                readContentsAsString(Main.CURRENT_BRANCH))) {
-            System.out.println("No need to checkout the current branch.");
-            System.exit(0);
-        }
-
-        for (String f : Utils.plainFilenamesIn(Main.CWD)) {
-            if (!f.equals(".gitlet") && !headCommit.
-                    getFileToBlob().containsKey(f))  {
-                if (branchHead.getFileToBlob().containsKey(f)) {
-                    byte[] workingDirFileContents =
-                            Utils.readContents(Utils.join(Main.CWD, f));
-                    if (!Arrays.equals(workingDirFileContents,
-                            branchHead.getFileToBlob().get(f))) {
-                        System.out.println("There is an untracked file "
-                                + "in the way; delete it or add it first.");
-                        System.exit(0);
-                    }
-                }
-            } else if (!f.equals(".gitlet")) {
-                Utils.join(Main.CWD, f).delete();
-            }
+        if (!Refs.exists(branchName)) {
+            throw Utils.error("No such branch exists.");
         }
 
-        for (String f : branchHead.getFileToBlob().keySet()) {
-            Utils.writeContents(Utils.join(Main.CWD, f),
-                    new String(branchHead.getFileToBlob().get(f)));
+        Commit branchHead = Commit.read(Refs.branch(branchName));
+
+        if (branchName.equals(currentBranch())) {
+            throw Utils.error("No need to checkout the current branch.");
+        }
+
+        checkoutCommit(headCommit(), branchHead);
+
+        Refs.setCurrentBranch(branchName);
+        invalidate();
+    }
+
+    /** Changes the working directory from the files of commit FROM to
+     *  those of commit TO and empties the staging area. Only the files
+     *  that Tree.diff finds differ between the two commits, and tracked
+     *  files whose working contents were changed or removed, are written
+     *  or deleted; every other file is left alone, keeping its
+     *  modification time. Files are deleted before any is written, so
+     *  that a file may replace a directory of the same name. Fails before
+     *  changing anything if an untracked file would be overwritten or is
+     *  where a directory or file has to go. */
+    private static void checkoutCommit(Commit from, Commit to) {
+        TreeMap<String, String[]> changes =
+                Tree.diff(from.getTree(), to.getTree());
+        TreeMap<String, String> writes = new TreeMap<>();
+        TreeSet<String> deleted = new TreeSet<>();
+        for (Map.Entry<String, String[]> e : changes.entrySet()) {
+            String f = e.getKey();
+            String[] ids = e.getValue();
+            if (ids[1] == null) {
+                deleted.add(f);
+                continue;
+            }
+            if (ids[0] == null && Utils.join(Main.CWD, f).isFile()
+                    && !ids[1].equals(Index.hash(f))) {
+                throw Utils.error("There is an untracked file in the way;"
+                        + " delete it or add it first.");
+            }
+            writes.put(f, ids[1]);
+        }
+        for (Map.Entry<String, String> e : to.getFileToBlob().entrySet()) {
+            String f = e.getKey();
+            if (!changes.containsKey(f)
+                    && !e.getValue().equals(Index.hash(f))) {
+                writes.put(f, e.getValue());
+            }
         }
+        checkWritable(writes.keySet(), deleted);
 
-        for (String f : Utils.plainFilenamesIn(Main.STAGING_AREA)) {
-            Utils.join(Main.STAGING_AREA, f).delete();
+        for (String f : deleted) {
+            deleteWorkingFile(f);
+        }
+        for (Map.Entry<String, String> e : writes.entrySet()) {
+            ObjectStore.copyTo(e.getValue(), workingFile(e.getKey()));
+            Index.record(e.getKey(), e.getValue());
         }
 
-        Utils.writeContents(Main.HEAD, branchHeadPath);
-        Utils.writeContents(Main.CURRENT_BRANCH, branchName);
+        Index.clearStage();
     }
 
     /** Makes new Branch with ARGS. */
     public static void branch(String... args) {
         checkArgs("branch", 2, args);
         String newBranch = args[1];
-        if (Utils.plainFilenamesIn(Main.BRANCH_HEADS).contains(newBranch)) {
-            System.out.println("A branch with that name already exists.");
-            System.exit(0);
+        if (Refs.exists(newBranch)) {
+            throw Utils.error("A branch with that name already exists.");
         }
-        File thisBranch = Utils.join(Main.BRANCH_HEADS, newBranch);
-        Utils.writeContents(thisBranch, Utils.readContentsAsString(Main.HEAD));
+        Refs.setBranch(newBranch, Refs.head());
     }
 
     /** Removes Branch with ARGS. */
     public static void rmBranch(String... args) {
         checkArgs("rm-branch", 2, args);
         String branchToRemove = args[1];
-        if (branchToRemove.equals(Utils.
-                readContentsAsString(Main.CURRENT_BRANCH))) {
-            System.out.println("Cannot remove the current branch.");
-            System.exit(0);
-        }
-        if (!Utils.plainFilenamesIn(Main.BRANCH_HEADS).
-                contains(branchToRemove)) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
-        }
-        File deleteBranch = Utils.join(Main.BRANCH_HEADS, branchToRemove);
-        deleteBranch.delete();
+        if (branchToRemove.equals(currentBranch())) {
+            throw Utils.error("Cannot remove the current branch.");
+        }
+        if (!Refs.exists(branchToRemove)) {
+            throw Utils.error("A branch with that name does not exist.");
+        }
+        Refs.delete(branchToRemove);
     }
 
-    /** Gives global log with ARGS. */
+    /** Gives global log with ARGS, which may limit it by the options
+     *  of History. */
     public static void globalLog(String... args) {
-        checkArgs("global-log", 1, args);
-        for (File dirName : Commit.COMMITS_FOLDER.
-                listFiles(File::isDirectory)) {
-            if (Utils.plainFilenamesIn(dirName).size() != 0) {
-                for (String commitName : Utils.plainFilenamesIn(dirName)) {
-                    File commitFile = Utils.join(dirName, commitName);
-                    Commit commitObject = Utils.readObject(
-                            commitFile, Commit.class);
-                    System.out.println("===");
-                    System.out.println("commit " + commitObject.getSHA1());
-                    if (commitObject.getSecondParent() != null) {
-                        System.out.println("Merge: " + commitObject.
-                                getParent().substring(0, 7)
-                                + " " + commitObject.
-                                getSecondParent().substring(0, 7));
-                    }
-                    System.out.println("Date: " + commitObject.getTimeStamp());
-                    System.out.println(commitObject.getMessage());
-                    System.out.println();
-                }
-            }
-        }
+        checkArgsAtLeast("global-log", 1, args);
+        new History(args).print(Commit.ids().iterator());
     }
 
-    /** Finds commits with ARGS. */
+    /** Finds commits by message with ARGS: "find MESSAGE" prints the
+     *  commits whose message is MESSAGE, "find --words WORDS" those whose
+     *  message contains every word of WORDS, ignoring case, "find --grep
+     *  TEXT" those whose message contains TEXT, and "find --regex PATTERN"
+     *  those part of whose message matches PATTERN. */
     public static void find(String... args) {
-        checkArgs("find", 2, args);
-        String commitMessage = args[1];
-        int count = 0;
-        for (String subDir : Commit.COMMITS_FOLDER.list()) {
-            if (Utils.plainFilenamesIn(Utils.join(
-                    Commit.COMMITS_FOLDER, subDir)).size() != 0) {
-                for (String commitNames : Utils.plainFilenamesIn(
-                        Utils.join(Commit.COMMITS_FOLDER, subDir))) {
-                    File commitFile = Utils.join(
-                            Commit.COMMITS_FOLDER, subDir, commitNames);
-                    Commit commitObject = Utils.readObject(
-                            commitFile, Commit.class);
-                    if (commitObject.getMessage().equals(commitMessage)) {
-                        System.out.println(commitObject.getSHA1());
-                        count += 1;
-                    }
-                }
+        checkArgs("find", args.length == 2 ? 2 : 3, args);
+        TreeSet<String> found;
+        if (args.length == 2) {
+            found = MessageIndex.exact(args[1]);
+        } else if (args[1].equals("--words")) {
+            found = MessageIndex.words(args[2]);
+        } else if (args[1].equals("--grep")) {
+            found = MessageIndex.containing(args[2]);
+        } else if (args[1].equals("--regex")) {
+            try {
+                found = MessageIndex.matching(Pattern.compile(args[2]));
+            } catch (PatternSyntaxException excp) {
+                throw Utils.error("Invalid pattern.");
             }
+        } else {
+            throw Utils.error("Incorrect operands.");
+        }
+
+        if (found.isEmpty()) {
+            throw Utils.error("Found no commit with that message.");
+        }
+        for (String commitID : found) {
+            System.out.println(commitID);
         }
+    }
 
-        if (count == 0) {
-            System.out.println("Found no commit with that message.");
-            System.exit(0);
+    /** Checks the commit and message indexes against the commits with
+     *  ARGS, reporting each commit they disagree about and rebuilding
+     *  whichever is wrong. */
+    public static void fsck(String... args) {
+        checkArgs("fsck", 1, args);
+        HashMap<String, String> messages = MessageIndex.messages();
+        boolean badMessages = false;
+        boolean badIDs = false;
+        for (Commit c : Commit.readAll(Commit.ids())) {
+            String commitID = c.getSHA1();
+            String message = messages.remove(commitID);
+            if (message == null) {
+                System.out.printf("Commit %s is missing from the message"
+                        + " index.%n", commitID);
+                badMessages = true;
+            } else if (!message.equals(c.getMessage())) {
+                System.out.printf("Commit %s has the wrong message in the"
+                        + " message index.%n", commitID);
+                badMessages = true;
+            }
+            if (!CommitIndex.find(commitID).contains(commitID)) {
+                System.out.printf("Commit %s is missing from the commit"
+                        + " index.%n", commitID);
+                badIDs = true;
+            }
+        }
+        for (String commitID : new TreeSet<>(messages.keySet())) {
+            System.out.printf("Commit %s is in the message index but does"
+                    + " not exist.%n", commitID);
+            badMessages = true;
+        }
+        if (badMessages) {
+            MessageIndex.rebuild();
+            System.out.println("Rebuilt the message index.");
+        }
+        if (badIDs) {
+            CommitIndex.rebuild();
+            System.out.println("Rebuilt the commit index.");
         }
     }
 
@@ -453,96 +508,94 @@ public class Repository {
         checkArgs("rm", 2, args);
         String removeFile = args[1];
 
-        File currentHead = new File(Utils.readContentsAsString(Main.HEAD));
-        Commit headCommit = Utils.readObject(currentHead, Commit.class);
+        Commit headCommit = headCommit();
 
         if (!headCommit.getFileToBlob().keySet().contains(removeFile)
-                && !Utils.plainFilenamesIn(
-                        Main.STAGING_AREA).contains(removeFile)) {
-            System.out.println("No reason to remove the file.");
-            System.exit(0);
+                && !Index.staged().containsKey(removeFile)) {
+            throw Utils.error("No reason to remove the file.");
         } else if (headCommit.getFileToBlob().keySet().contains(removeFile)) {
 
-            byte[] rmFileContent = headCommit.getFileToBlob().get(removeFile);
-            Utils.writeContents(Utils.join(
-                    Main.REMOVE_FROM_COMMIT, removeFile), rmFileContent);
+            Index.stageRemoval(removeFile,
+                    headCommit.getFileToBlob().get(removeFile));
 
             if (Utils.join(Main.CWD, removeFile).exists()) {
-                Utils.join(Main.CWD, removeFile).delete();
+                deleteWorkingFile(removeFile);
             }
         }
 
-        if (Utils.plainFilenamesIn(Main.STAGING_AREA).contains(removeFile)) {
-            Utils.join(Main.STAGING_AREA, removeFile).delete();
-        }
+        Index.unstage(removeFile);
     }
 
     /** Resets commit with ARGS. */
     public static void reset(String... args) {
         checkArgs("reset", 2, args);
-        File commitSubDir = Utils.join(
-                Commit.COMMITS_FOLDER, args[1].substring(0, 1));
-        String commitID = ifFileExists(args[1], commitSubDir);
-
-        List<String> filesForRemoval =
-                Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT);
-        while (filesForRemoval.size() != 0) {
-            Utils.writeContents(Utils.join(Main.CWD, filesForRemoval.get(0)),
-                    Utils.readContentsAsString(Utils.join
-                            (Main.REMOVE_FROM_COMMIT, filesForRemoval.get(0))));
-            Utils.join(Main.REMOVE_FROM_COMMIT,
-                    filesForRemoval.get(0)).delete();
-            filesForRemoval.remove(0);
-        }
-
-        String headPath = Utils.readContentsAsString(Main.HEAD);
-        Commit headCommit = Utils.readObject(new File(headPath), Commit.class);
-
-        Commit goToCommit = Utils.readObject(
-                Utils.join(commitSubDir, commitID), Commit.class);
-
-        for (String f : Utils.plainFilenamesIn(Main.CWD)) {
-            if (!f.equals(".gitlet")
-                    && !headCommit.getFileToBlob().containsKey(f))  {
-                if (goToCommit.getFileToBlob().containsKey(f)) {
-                    byte[] workingDirFileContents =
-                            Utils.readContents(Utils.join(Main.CWD, f));
-                    if (!Arrays.equals(workingDirFileContents,
-                            goToCommit.getFileToBlob().get(f))) {
-                        System.out.println("There is an untracked"
-                                + " file in the way; "
-                                + "delete it or add it first.");
-                        System.exit(0);
-                    }
-                }
-            } else if (!f.equals(".gitlet")) {
-                Utils.join(Main.CWD, f).delete();
-            }
-        }
+        String commitID = CommitIndex.resolve(args[1]);
 
-        for (String f : goToCommit.getFileToBlob().keySet()) {
-            Utils.writeContents(Utils.join(Main.CWD, f),
-                    new String(goToCommit.getFileToBlob().get(f)));
-        }
+        checkoutCommit(headCommit(), Commit.read(commitID));
 
-        for (String f : Utils.plainFilenamesIn(
-                Main.STAGING_AREA)) {
-            Utils.join(Main.STAGING_AREA, f).delete();
+        updateHead(commitID);
+    }
+
+    /** Shows or changes the fan-out of the shard directories with ARGS:
+     *  "fanout" prints how many hex digits of an ID name the directory
+     *  its loose object or commit is in, and "fanout N" moves every loose
+     *  object and commit into directories named by N digits, holding the
+     *  Lock on the objects. A fanout that is interrupted can simply be
+     *  run again. */
+    public static void fanout(String... args) {
+        checkArgs("fanout", args.length == 1 ? 1 : 2, args);
+        if (args.length == 1) {
+            System.out.println(Config.fanOut());
+            return;
+        }
+        int width;
+        try {
+            width = Integer.parseInt(args[1]);
+        } catch (NumberFormatException excp) {
+            width = 0;
         }
+        if (width < 1 || width > Config.MAX_FAN_OUT) {
+            throw Utils.error("Fan-out must be 1 to %d.", Config.MAX_FAN_OUT);
+        }
+        try (Lock objects = Lock.lockObjects()) {
+            reshard(ObjectStore.OBJECTS_FOLDER, width);
+            reshard(Commit.COMMITS_FOLDER, width);
+            Config.setFanOut(width);
+        }
+        invalidate();
+    }
 
-        String currBranch = Utils.readContentsAsString(Main.CURRENT_BRANCH);
-        String path = Utils.join(commitSubDir, commitID).getPath();
-        Utils.writeContents(Utils.join(Main.BRANCH_HEADS, currBranch), path);
-        Utils.writeContents(Main.HEAD, path);
+    /** Moves the files in the shard directories of FOLDER to shard
+     *  directories named by the first WIDTH digits of their IDs, removing
+     *  the directories this empties. */
+    private static void reshard(File folder, int width) {
+        for (File dir : folder.listFiles(File::isDirectory)) {
+            for (String id : Utils.plainFilenamesIn(dir)) {
+                if (id.length() != Utils.UID_LENGTH
+                        || dir.getName().equals(id.substring(0, width))) {
+                    continue;
+                }
+                File target = Utils.join(folder, id.substring(0, width), id);
+                target.getParentFile().mkdirs();
+                try {
+                    Files.move(Utils.join(dir, id).toPath(), target.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+            dir.delete();
+        }
     }
 
     /** Gives status of repository with ARGS. */
     public static void status(String... args) {
         checkArgs("status", 1, args);
         HashSet<String> a = new HashSet<>();
-        String c = Utils.readContentsAsString(Main.CURRENT_BRANCH);
+        String c = currentBranch();
         System.out.println("=== Branches ===");
-        for (String branchName : Utils.plainFilenamesIn(Main.BRANCH_HEADS)) {
+        for (String branchName : Refs.branches().keySet()) {
             a.add(branchName);
             if (c.equals(branchName)) {
                 branchName = "*" + branchName;
@@ -551,20 +604,18 @@ public class Repository {
         }
         System.out.println();
         System.out.println("=== Staged Files ===");
-        for (String stagedFile : Utils.plainFilenamesIn(Main.STAGING_AREA)) {
+        for (String stagedFile : Index.staged().keySet()) {
             System.out.println(stagedFile);
             a.add(stagedFile);
         }
         System.out.println();
         System.out.println("=== Removed Files ===");
-        for (String removedFile : Utils.plainFilenamesIn(
-                Main.REMOVE_FROM_COMMIT)) {
+        for (String removedFile : Index.removed().keySet()) {
             System.out.println(removedFile);
             a.add(removedFile);
         }
         System.out.println();
-        String headPath = Utils.readContentsAsString(Main.HEAD);
-        Commit h = Utils.readObject(new File(headPath), Commit.class);
+        Commit h = headCommit();
         Set<String> committedFiles = h.getFileToBlob().keySet();
         ArrayList<String> notStagedForCommit = new ArrayList<>();
         for (String f : committedFiles) {
@@ -574,8 +625,7 @@ public class Repository {
                 notStagedForCommit.add(f);
             } else if (Utils.join(Main.CWD, f).exists()
                     && !a.contains(f)
-                    && !Utils.readContentsAsString(Utils.join(Main.CWD, f))
-                            .equals(new String(h.getFileToBlob().get(f)))) {
+                    && !Index.hash(f).equals(h.getFileToBlob().get(f))) {
                 a.add(f);
                 f += " (modified)";
                 notStagedForCommit.add(f);
@@ -589,7 +639,7 @@ public class Repository {
             System.out.println(f);
         }
         System.out.println();
-        List<String> dirFiles = Utils.plainFilenamesIn(Main.CWD);
+        List<String> dirFiles = workingFiles();
         System.out.println("=== Untracked Files ===");
         for (String f : dirFiles) {
             if (!a.contains(f)) {
@@ -603,35 +653,21 @@ public class Repository {
         checkArgs("merge", 2, args);
         String givenBranchName = args[1];
         String currentBranchName =
-                Utils.readContentsAsString(Main.CURRENT_BRANCH);
+                currentBranch();
         m1(givenBranchName);
         m2(givenBranchName, currentBranchName);
         m3();
-        String currHeadPath = Utils.readContentsAsString
-                (Utils.join(Main.BRANCH_HEADS, currentBranchName));
-        Commit currBranch = Utils.readObject(
-                new File(currHeadPath), Commit.class);
-        String givenHeadPath = Utils.readContentsAsString
-                (Utils.join(Main.BRANCH_HEADS, givenBranchName));
-        Commit givenBranch = Utils.readObject(
-                new File(givenHeadPath), Commit.class);
+        Commit currBranch = Commit.read(Refs.branch(currentBranchName));
+        Commit givenBranch = Commit.read(Refs.branch(givenBranchName));
         String splitPointSHA1 = splitPointHelper(currBranch, givenBranch);
-        Commit splitPoint = Utils.readObject(Utils.join
-                (Commit.COMMITS_FOLDER, splitPointSHA1.substring(0, 1),
-                        splitPointSHA1), Commit.class);
+        Commit splitPoint = Commit.read(splitPointSHA1);
         m5(splitPointSHA1, givenBranch);
-        m4(splitPointSHA1, currBranch, givenHeadPath, givenBranch);
-
-        HashMap<String, byte[]> givenBranchFiles = givenBranch.getFileToBlob();
-        HashMap<String, byte[]> currBranchFiles = currBranch.getFileToBlob();
-        HashMap<String, byte[]> splitPointFiles = splitPoint.getFileToBlob();
-        boolean encounteredConflict = false;
-
-        encounteredConflict = theOGLoop(givenBranchFiles, splitPointFiles,
-                currBranchFiles, givenBranch, encounteredConflict);
+        if (m4(splitPointSHA1, currBranch, givenBranch)) {
+            return;
+        }
 
-        encounteredConflict = theLoop(currBranchFiles, splitPointFiles,
-                givenBranchFiles, encounteredConflict);
+        boolean encounteredConflict = mergeTrees(splitPoint, currBranch,
+                givenBranch);
 
         String logMsg = "Merged " + givenBranchName
                 + " into " + currentBranchName + ".";
@@ -643,455 +679,193 @@ public class Repository {
 
     /** with GIVENBRANCHNAME. */
     private static void m1(String givenBranchName) {
-        if (!Utils.plainFilenamesIn(
-                Main.BRANCH_HEADS).contains(givenBranchName)) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+        if (!Refs.exists(givenBranchName)) {
+            throw Utils.error("A branch with that name does not exist.");
         }
     }
 
     /** with CURRENTBRANCHNAME, GIVENBRANCHNAME. */
     private static void m2(String givenBranchName, String currentBranchName) {
         if (givenBranchName.equals(currentBranchName)) {
-            System.out.println("Cannot merge a branch with itself.");
-            System.exit(0);
+            throw Utils.error("Cannot merge a branch with itself.");
         }
     }
 
     /** m3. */
     private static void m3() {
-        if (Utils.plainFilenamesIn(Main.STAGING_AREA).size() != 0
-                || Utils.plainFilenamesIn(
-                Main.REMOVE_FROM_COMMIT).size() != 0) {
-            System.out.println("You have uncommitted changes.");
-            System.exit(0);
+        if (!Index.staged().isEmpty() || !Index.removed().isEmpty()) {
+            throw Utils.error("You have uncommitted changes.");
         }
     }
 
-    /** with SPLITPOINTSHA1, GIVENBRANCH, CURRBRANCH, GIVENHEADPATH. */
-    private static void m4(String splitPointSHA1, Commit currBranch,
-                           String givenHeadPath, Commit givenBranch) {
+    /** Returns true if the merge was a fast-forward, with
+     *  SPLITPOINTSHA1, GIVENBRANCH, CURRBRANCH. */
+    private static boolean m4(String splitPointSHA1, Commit currBranch,
+                              Commit givenBranch) {
         if (splitPointSHA1.equals(currBranch.getSHA1())) {
-            updateHeads(new File(givenHeadPath));
+            checkoutCommit(currBranch, givenBranch);
+            updateHead(givenBranch.getSHA1());
             System.out.println("Current branch fast-forwarded.");
-            mergeReset(givenBranch);
-            System.exit(0);
+            return true;
         }
+        return false;
     }
 
     /** with SPLITPOINTSHA1, GIVENBRANCH. */
     private static void m5(String splitPointSHA1, Commit givenBranch) {
         if (splitPointSHA1.equals(givenBranch.getSHA1())) {
-            System.out.println("Given branch is "
+            throw Utils.error("Given branch is "
                     + "an ancestor of the current branch.");
-            System.exit(0);
-        }
-    }
-
-    /** with GBFILENAME, CURRCONTENTS, GIVENCONTENTS. */
-    private static void m6(String gBfilename,
-                           String currContents, String givenContents) {
-        Utils.writeContents(Utils.join(Main.CWD, gBfilename),
-                "<<<<<<< HEAD" + "\n" + currContents
-                        + "=======" + "\n" + givenContents
-                        + ">>>>>>>" + "\n");
-    }
-
-    /** with GBFILENAME, GIVENCONTENTS. */
-    private static void m7(String gBfilename, String givenContents) {
-        Utils.writeContents(Utils.join(Main.CWD, gBfilename),
-                "<<<<<<< HEAD" + "\n" + ""
-                        + "=======" + "\n" + givenContents
-                        + ">>>>>>>" + "\n");
-    }
-
-    /** Returns encounteredConflict with CURRBRANCHFILES,
-     *  SPLITPOINTFILES, GIVENBRANCHFILES, GBFILENAME,
-     *  INSPLITPOINT, INCURRBRANCH. */
-    private static boolean checkInSPC(boolean inSplitPoint,
-                                      boolean inCurrBranch,
-                                      HashMap<String, byte[]> givenBranchFiles,
-                                      String gBfilename,
-                                      HashMap<String, byte[]> currBranchFiles,
-                                      HashMap<String, byte[]> splitPointFiles) {
-        if (inSplitPoint && inCurrBranch) {
-            if (!Arrays.equals(givenBranchFiles.get(gBfilename),
-                    currBranchFiles.get(gBfilename))) {
-                if (Arrays.equals(splitPointFiles.get(gBfilename),
-                        currBranchFiles.get(gBfilename))) {
-                    Utils.writeContents(Utils.join(Main.CWD, gBfilename),
-                            new String(givenBranchFiles.get(gBfilename)));
-                    add("add", gBfilename);
-                    return true;
-                }
-            }
-            if (Arrays.equals(givenBranchFiles.get(gBfilename),
-                    splitPointFiles.get(gBfilename))) {
-                if (!Arrays.equals(splitPointFiles.get(gBfilename),
-                        currBranchFiles.get(gBfilename))) {
-                    return true;
-                }
-            }
-            if (!Arrays.equals(splitPointFiles.get(gBfilename),
-                    currBranchFiles.get(gBfilename))) {
-                if (!Arrays.equals(splitPointFiles.get(gBfilename),
-                        givenBranchFiles.get(gBfilename))) {
-                    if (Arrays.equals(givenBranchFiles.get(gBfilename),
-                            currBranchFiles.get(gBfilename))) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
-
-    /** Returns encounteredConflict with CURRBRANCHFILES,
-     *  SPLITPOINTFILES, GIVENBRANCHFILES, GBFILENAME,
-     *  INSPLITPOINT, INCURRBRANCH. */
-    private static boolean checkNotSP(boolean inSplitPoint,
-                                      HashMap<String, byte[]> splitPointFiles,
-                                      String gBfilename,
-                                      HashMap<String, byte[]> givenBranchFiles,
-                                      boolean inCurrBranch,
-                                      HashMap<String, byte[]> currBranchFiles) {
-        if (!inSplitPoint && !Arrays.equals(
-                splitPointFiles.get(gBfilename),
-                givenBranchFiles.get(gBfilename))) {
-            String givenContents = "";
-            if (givenBranchFiles.get(gBfilename) != null) {
-                givenContents =
-                        new String(givenBranchFiles.get(gBfilename));
-            }
-            if (inCurrBranch) {
-                String currContents = "";
-                if (currBranchFiles.get(gBfilename) != null) {
-                    currContents =
-                            new String(currBranchFiles.get(gBfilename));
-                }
-                Utils.writeContents(Utils.join(Main.CWD, gBfilename),
-                        "<<<<<<< HEAD" + "\n"
-                                + currContents + "=======" + "\n"
-                                + givenContents + ">>>>>>>" + "\n");
-            } else {
-                Utils.writeContents(Utils.join(Main.CWD, gBfilename),
-                        "<<<<<<< HEAD" + "\n" + ""
-                                + "=======" + "\n" + givenContents
-                                + ">>>>>>>" + "\n");
-            }
-            add("add", gBfilename);
-            return true;
         }
-        return false;
     }
 
-    /** Returns encounteredConflict with CURRBRANCHFILES,
-     *  SPLITPOINTFILES, GIVENBRANCHFILES, GBFILENAME,
-     *  INSPLITPOINT, INCURRBRANCH. */
-    private static boolean checkSP(boolean inSplitPoint,
-                                   HashMap<String, byte[]> splitPointFiles,
-                                   String gBfilename,
-                                   HashMap<String, byte[]> givenBranchFiles,
-                                   boolean inCurrBranch,
-                                   HashMap<String, byte[]> currBranchFiles) {
-        if (inSplitPoint && !Arrays.equals(splitPointFiles.get(gBfilename),
-                givenBranchFiles.get(gBfilename))) {
-            String givenContents = "";
-            if (givenBranchFiles.get(gBfilename) != null) {
-                givenContents =
-                        new String(givenBranchFiles.get(gBfilename));
+    /** Merges the files of GIVENBRANCH into those of CURRBRANCH, given
+     *  their SPLITPOINT, in the working directory and the staging area,
+     *  returning true iff some changes conflicted. Only the paths that
+     *  Tree.diff finds changed on either side since SPLITPOINT are
+     *  visited, in one pass over them in order, and each is settled by
+     *  comparing the IDs of its three versions: a file that only the
+     *  given branch changed takes the given version, one that both
+     *  changed differently is merged by Diff3, and any other keeps the
+     *  current version. Every decision is made, and an untracked file in
+     *  the way reported, before the first file is written, and files the
+     *  given branch removed are deleted before any is written. An
+     *  untracked file is in the way where a file is to be written, inside
+     *  a directory at its path, or where one of its directories has to
+     *  go. */
+    private static boolean mergeTrees(Commit splitPoint, Commit currBranch,
+                                      Commit givenBranch) {
+        TreeMap<String, String[]> toCurr =
+                Tree.diff(splitPoint.getTree(), currBranch.getTree());
+        TreeMap<String, String[]> toGiven =
+                Tree.diff(splitPoint.getTree(), givenBranch.getTree());
+        TreeSet<String> paths = new TreeSet<>(toCurr.keySet());
+        paths.addAll(toGiven.keySet());
+
+        TreeMap<String, String[]> taken = new TreeMap<>();
+        TreeMap<String, String[]> merged = new TreeMap<>();
+        for (String path : paths) {
+            String[] curr = toCurr.get(path);
+            String[] given = toGiven.get(path);
+            String split = curr != null ? curr[0] : given[0];
+            String[] versions = {split, curr != null ? curr[1] : split,
+                                 given != null ? given[1] : split};
+            if (Objects.equals(versions[1], versions[2])
+                    || Objects.equals(split, versions[2])) {
+                continue;
             }
-            if (inCurrBranch) {
-                String currContents = "";
-                if (currBranchFiles.get(gBfilename) != null) {
-                    currContents =
-                            new String(currBranchFiles.get(gBfilename));
-                }
-                m6(gBfilename, currContents, givenContents);
-            } else {
-                m7(gBfilename, givenContents);
+            if (versions[1] == null && Utils.join(Main.CWD, path).isFile()
+                    && !Objects.equals(Index.hash(path), versions[2])) {
+                throw Utils.error("There is an untracked file in the way;"
+                        + " delete it or add it first.");
             }
-            add("add", gBfilename);
-            return true;
-        }
-        return false;
-    }
-
-    /** Returns encounteredConflict with CURRBRANCHFILES,
-     *  SPLITPOINTFILES, GIVENBRANCHFILES, CBFILENAME,
-     *  INSPLITPOINT, INGIVENBRANCH. */
-    private static boolean checkNotSP2(boolean inSplitPoint,
-                                       HashMap<String, byte[]> splitPointFiles,
-                                       String cBfilename,
-                                       HashMap<String, byte[]> currBranchFiles,
-                                       boolean inGivenBranch,
-                                       HashMap<String, byte[]>
-                                               givenBranchFiles) {
-        if (!inSplitPoint && !Arrays.equals(splitPointFiles.get(cBfilename),
-                currBranchFiles.get(cBfilename))) {
-            String currContents = "";
-            if (currBranchFiles.get(cBfilename) != null) {
-                currContents = new String(currBranchFiles.get(cBfilename));
-            }
-            if (inGivenBranch) {
-                String givenContents = "";
-                if (givenBranchFiles.get(cBfilename) != null) {
-                    givenContents =
-                            new String(givenBranchFiles.get(cBfilename));
-                }
-                Utils.writeContents(Utils.join(Main.CWD, cBfilename),
-                        "<<<<<<< HEAD" + "\n" + currContents
-                                + "=======" + "\n"
-                                + givenContents + ">>>>>>>" + "\n");
+            if (Objects.equals(split, versions[1])) {
+                taken.put(path, versions);
             } else {
-                Utils.writeContents(Utils.join(Main.CWD, cBfilename),
-                        "<<<<<<< HEAD" + "\n"
-                                + currContents + "======="
-                                + "\n" + "" + ">>>>>>>" + "\n");
+                merged.put(path, versions);
             }
-            add("add", cBfilename);
-            return true;
         }
-        return false;
-    }
-
-    /** Returns encounteredConflict with CURRBRANCHFILES,
-     *  SPLITPOINTFILES, GIVENBRANCHFILES, CBFILENAME,
-     *  INSPLITPOINT, INGIVENBRANCH. */
-    private static boolean checkSP2(boolean inSplitPoint,
-                                    HashMap<String, byte[]> splitPointFiles,
-                                    String cBfilename,
-                                    HashMap<String, byte[]> currBranchFiles,
-                                    boolean inGivenBranch,
-                                    HashMap<String, byte[]> givenBranchFiles) {
-        if (inSplitPoint && !Arrays.equals(splitPointFiles.get(cBfilename),
-                currBranchFiles.get(cBfilename))) {
-            String currContents = "";
-            if (currBranchFiles.get(cBfilename) != null) {
-                currContents = new String(currBranchFiles.get(cBfilename));
-            }
-            if (inGivenBranch) {
-                String givenContents = "";
-                if (givenBranchFiles.get(cBfilename) != null) {
-                    givenContents =
-                            new String(givenBranchFiles.get(cBfilename));
-                }
-                Utils.writeContents(Utils.join(Main.CWD, cBfilename),
-                        "<<<<<<< HEAD" + "\n" + currContents
-                                + "=======" + "\n"
-                                + givenContents + ">>>>>>>" + "\n");
-            } else {
-                Utils.writeContents(Utils.join(Main.CWD, cBfilename),
-                        "<<<<<<< HEAD" + "\n" + currContents
-                                + "=======" + "\n" + "" + ">>>>>>>" + "\n");
-            }
-            add("add", cBfilename);
-            return true;
+        TreeSet<String> writes = new TreeSet<>(merged.keySet());
+        TreeSet<String> deleted = new TreeSet<>();
+        for (Map.Entry<String, String[]> e : taken.entrySet()) {
+            (e.getValue()[2] == null ? deleted : writes).add(e.getKey());
         }
-        return false;
-    }
+        checkWritable(writes, deleted);
 
-    /** Returns encounteredConflict with CURRBRANCHFILES,
-     *  SPLITPOINTFILES, GIVENBRANCHFILES, ENCOUNTEREDCONFLICT. */
-    private static boolean theLoop(HashMap<String, byte[]> currBranchFiles,
-                                   HashMap<String, byte[]> splitPointFiles,
-                                   HashMap<String, byte[]> givenBranchFiles,
-                                   boolean encounteredConflict) {
-        for (String cBfilename : currBranchFiles.keySet()) {
-            boolean inSplitPoint = splitPointFiles.containsKey(cBfilename);
-            boolean inGivenBranch = givenBranchFiles.containsKey(cBfilename);
-            if (inSplitPoint && !inGivenBranch) {
-                if (Arrays.equals(splitPointFiles.get(cBfilename),
-                        currBranchFiles.get(cBfilename))) {
-                    rm("rm", cBfilename);
-                }
-            }
-            if (!inSplitPoint && !inGivenBranch) {
-                continue;
-            }
-            if (checkNotSP2(inSplitPoint, splitPointFiles, cBfilename,
-                    currBranchFiles, inGivenBranch, givenBranchFiles)) {
-                encounteredConflict = true;
-                continue;
-            }
-            if (checkSP2(inSplitPoint, splitPointFiles, cBfilename,
-                    currBranchFiles, inGivenBranch, givenBranchFiles)) {
-                encounteredConflict = true;
-                continue;
+        for (Map.Entry<String, String[]> e : taken.entrySet()) {
+            if (e.getValue()[2] == null) {
+                Index.stageRemoval(e.getKey(), e.getValue()[1]);
+                deleteWorkingFile(e.getKey());
             }
         }
-        return encounteredConflict;
-    }
-
-    /** Returns encounteredConflict with GIVENBRANCHFILES,
-     *  SPLITPOINTFILES, CURRBRANCHFILES, GIVENBRANCH, ENCOUNTEREDCONFLICT. */
-    private static boolean theOGLoop(HashMap<String, byte[]> givenBranchFiles,
-                                     HashMap<String, byte[]> splitPointFiles,
-                                     HashMap<String, byte[]> currBranchFiles,
-                                     Commit givenBranch,
-                                     boolean encounteredConflict) {
-        for (String gBfilename : givenBranchFiles.keySet()) {
-            boolean inSplitPoint = splitPointFiles.containsKey(gBfilename);
-            boolean inCurrBranch = currBranchFiles.containsKey(gBfilename);
-            if (checkInSPC(inSplitPoint, inCurrBranch, givenBranchFiles,
-                    gBfilename, currBranchFiles, splitPointFiles)) {
-                continue;
-            }
-            if (!inCurrBranch && Utils.join(Main.CWD, gBfilename).exists()) {
-                if (!Arrays.equals(givenBranchFiles.get(gBfilename),
-                        Utils.readContents(Utils.join(Main.CWD, gBfilename)))) {
-                    System.out.println("There is an untracked file in the way;"
-                            + " delete it or add it first.");
-                    System.exit(0);
-                }
-            }
-            if (!inSplitPoint && !inCurrBranch) {
-                checkout("checkout", givenBranch.getSHA1(), "--", gBfilename);
-                add("add", gBfilename);
-                continue;
-            }
-            if (inSplitPoint && !inCurrBranch) {
-                if (Arrays.equals(splitPointFiles.get(gBfilename),
-                        givenBranchFiles.get(gBfilename))) {
-                    continue;
-                }
-            }
-            if (checkNotSP(inSplitPoint, splitPointFiles, gBfilename,
-                    givenBranchFiles, inCurrBranch, currBranchFiles)) {
-                encounteredConflict = true;
-                continue;
-            }
-            if (checkSP(inSplitPoint, splitPointFiles, gBfilename,
-                    givenBranchFiles, inCurrBranch, currBranchFiles)) {
-                encounteredConflict = true;
-                continue;
+        for (Map.Entry<String, String[]> e : taken.entrySet()) {
+            String path = e.getKey();
+            String[] versions = e.getValue();
+            if (versions[2] != null) {
+                ObjectStore.copyTo(versions[2], workingFile(path));
+                Index.record(path, versions[2]);
+                Index.stage(path, versions[2]);
             }
         }
-        return encounteredConflict;
-    }
-
-    /** Reset for Merge with GOTOCOMMIT. */
-    private static void mergeReset(Commit goToCommit) {
-        File commitSubDir = Utils.join(Commit.COMMITS_FOLDER,
-                goToCommit.getSHA1().substring(0, 1), goToCommit.getSHA1());
-        HashMap<String, byte[]> goToCommitFiles = goToCommit.getFileToBlob();
-
-        for (String f : Utils.plainFilenamesIn(Main.CWD)) {
-            if (!goToCommitFiles.containsKey(f)) {
-                Utils.join(Main.CWD, f).delete();
+        boolean conflict = false;
+        for (Map.Entry<String, String[]> e : merged.entrySet()) {
+            String path = e.getKey();
+            String[] versions = e.getValue();
+            File file = workingFile(path);
+            conflict |= Diff3.merge(versions[0], versions[1], versions[2],
+                    file);
+            String id = ObjectStore.save(file);
+            Index.record(path, id);
+            if (!id.equals(versions[1])) {
+                Index.stage(path, id);
             }
         }
-
-        String currBranch = Utils.readContentsAsString(Main.CURRENT_BRANCH);
-        String path = Utils.join(commitSubDir, goToCommit.getSHA1()).getPath();
-        Utils.writeContents(Utils.join(Main.BRANCH_HEADS, currBranch), path);
-        Utils.writeContents(Main.HEAD, path);
+        return conflict;
     }
 
     /** Commit for Merge with LOGMSG and SECONDPARENT. */
     private static void mergeCommit(String logMsg, String secondParent) {
-        String logMessage = logMsg;
-        List<String> addedFiles;
-        List<String> removedFiles;
-        if (Utils.plainFilenamesIn(Main.STAGING_AREA).isEmpty()
-                && Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT).isEmpty()) {
-            addedFiles = null;
-            removedFiles = null;
-        } else {
-            addedFiles = Utils.plainFilenamesIn(Main.STAGING_AREA);
-            removedFiles = Utils.plainFilenamesIn(Main.REMOVE_FROM_COMMIT);
-
-        }
-        File currentHead = new File(Utils.readContentsAsString(Main.HEAD));
-        Commit headCommit = Utils.readObject(currentHead, Commit.class);
+        Commit headCommit = headCommit();
 
-        makeCommit(logMessage, headCommit,
-                addedFiles, removedFiles, secondParent);
+        makeCommit(logMsg, headCommit, secondParent);
     }
 
     /** Helps to find Split Point of CURRBRANCH
      * and GIVENBRANCH return splitcommit. */
     private static String splitPointHelper(Commit currBranch,
                                            Commit givenBranch) {
-        HashSet<String> givenBranchCommits = new HashSet<>();
-        addGivenParent(givenBranchCommits, givenBranch.getSHA1());
-
-        HashMap<String, String> splitPointMap =
-                findSplitPoint(currBranch.getSHA1(), givenBranchCommits, 0);
-        return splitPointMap.get("Commit");
+        int splitPoint = CommitGraph.mergeBase(
+                CommitGraph.indexOf(currBranch.getSHA1()),
+                CommitGraph.indexOf(givenBranch.getSHA1()));
+        if (splitPoint == CommitGraph.NONE) {
+            throw Utils.error("No splitpoint.");
+        }
+        return CommitGraph.sha1(splitPoint);
     }
 
-    /** Adds parents from PARENTS of GIVENBRANCH. */
-    private static void addGivenParent(HashSet<String>
-                                               parents, String givenBranch) {
-        if (givenBranch == null) {
-            return;
-        } else {
-            parents.add(givenBranch);
-            Commit com = Utils.readObject(Utils.join(Commit.COMMITS_FOLDER,
-                    givenBranch.substring(0, 1), givenBranch), Commit.class);
-            addGivenParent(parents, com.getParent());
-            addGivenParent(parents, com.getSecondParent());
+    /** Returns the head commit. */
+    static Commit headCommit() {
+        if (_headCommit == null) {
+            _headCommit = Commit.read(Refs.head());
         }
+        return _headCommit;
     }
 
-    /** Finds splitpoint from the CURRCOMMIT,
-     *  GIVENCOMMITS and LENGTH return hashMap. */
-    private static HashMap<String, String> findSplitPoint(
-            String currCommit, HashSet<String> givenCommits, int length) {
-        if (currCommit == null) {
-            return null;
-
-        } else if (givenCommits.contains(currCommit)) {
-            HashMap<String, String> temp = new HashMap<>();
-            temp.put("Commit", currCommit);
-            temp.put("Length", Integer.toString(length));
-            return temp;
+    /** Returns the name of the current branch. */
+    static String currentBranch() {
+        return Refs.currentBranch();
+    }
 
-        } else {
-            Commit com = Utils.readObject(Utils.join
-                    (Commit.COMMITS_FOLDER, currCommit.substring(0, 1),
-                            currCommit), Commit.class);
-            HashMap<String, String> splitOne =
-                    findSplitPoint(com.getParent(), givenCommits, length + 1);
-            HashMap<String, String> splitTwo =
-                    findSplitPoint(com.getSecondParent(),
-                            givenCommits, length + 1);
-
-            if (splitOne == null && splitTwo == null) {
-                System.out.println("No splitpoint.");
-                System.exit(0);
-            } else if (splitOne == null) {
-                return splitTwo;
-            } else if (splitTwo == null) {
-                return splitOne;
-            } else {
-                if (Integer.parseInt(splitOne.get("Length"))
-                        <= Integer.parseInt(splitTwo.get("Length"))) {
-                    return splitOne;
-                } else {
-                    return splitTwo;
-                }
-            }
-        }
-        return new HashMap<>();
+    /** Forgets the repository state read so far, so that it is read
+     *  again from .gitlet when next needed. Called whenever HEAD or the
+     *  current branch changes. */
+    static void invalidate() {
+        _headCommit = null;
+        CommitGraph.invalidate();
+        CommitIndex.invalidate();
+        Config.invalidate();
+        MessageIndex.invalidate();
+        Pack.invalidate();
+        Refs.invalidate();
     }
 
     /** Checking ARGS using CMD, N. */
     private static void checkArgs(String cmd, int n, String... args) {
         if (!cmd.equals("init")) {
             if (!Main.MAIN_FOLDER.exists()) {
-                System.out.println("Not in an initialized Gitlet directory.");
-                System.exit(0);
+                throw Utils.error("Not in an initialized Gitlet directory.");
             }
         }
         if (args.length != n) {
-            System.out.println("Incorrect operands.");
-            System.exit(0);
+            throw Utils.error("Incorrect operands.");
         }
     }
 
-    /** FORTY. */
-    static final int FORTY = 40;
+    /** Checking ARGS using CMD, with at least N of them. */
+    private static void checkArgsAtLeast(String cmd, int n, String... args) {
+        checkArgs(cmd, Math.max(n, args.length), args);
+    }
+
+    /** Cached head commit, or null. */
+    private static Commit _headCommit;
 }
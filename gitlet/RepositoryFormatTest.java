@@ -0,0 +1,44 @@
+package gitlet;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the refusal of repositories in an older layout.
+ *  @author Riddhi Bagadiaa
+ */
+public class RepositoryFormatTest {
+
+    /** A repository without packed-refs, as made before the refs were
+     *  packed, is refused by every command, whether or not it may change
+     *  the repository, and left as it was. */
+    @Test
+    public void noPackedRefs() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.write("f", "1\n");
+            repo.delete(".gitlet/packed-refs");
+            assertEquals(UNSUPPORTED, repo.run("status"));
+            assertEquals(UNSUPPORTED, repo.run("log"));
+            assertEquals(UNSUPPORTED, repo.run("add", "f"));
+            assertEquals(UNSUPPORTED, repo.run("gc"));
+            assertFalse(repo.isFile(".gitlet/packed-refs"));
+        }
+    }
+
+    /** A repository whose config has no fan-out, as made before loose
+     *  objects were sharded, is refused rather than read as sharded. */
+    @Test
+    public void noFanOut() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.commit("f", "1\n", "first");
+            repo.write(".gitlet/config", Config.COMPRESSION + "=6\n");
+            assertEquals(UNSUPPORTED, repo.run("log"));
+            assertEquals(UNSUPPORTED, repo.run("checkout", "--", "f"));
+            assertEquals(UNSUPPORTED, repo.run("config", Config.FAN_OUT));
+        }
+    }
+
+    /** What a command prints in a repository in an older layout. */
+    private static final String UNSUPPORTED = Main.UNSUPPORTED_FORMAT + "\n";
+}
@@ -0,0 +1,146 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** A Gitlet repository in a temporary directory, for the tests of classes
+ *  that keep their files under .gitlet. Main.MAIN_FOLDER is fixed by the
+ *  working directory, so commands are run by Main in another process,
+ *  started there. The directory is deleted on close.
+ *  @author Riddhi Bagadiaa
+ */
+class TempRepository implements AutoCloseable {
+
+    /** An initialized repository in a new temporary directory. */
+    TempRepository() throws IOException {
+        _dir = Files.createTempDirectory("gitlet").toFile();
+        run("init");
+    }
+
+    /** Runs the command ARGS, returning what it printed. */
+    String run(String... args) throws IOException {
+        return start("gitlet.Main", List.of(args));
+    }
+
+    /** Runs each of COMMANDS in turn, in one process, as a daemon would,
+     *  returning what they printed. */
+    String runAll(List<String[]> commands) throws IOException {
+        List<String> args = new ArrayList<>();
+        for (String[] command : commands) {
+            args.add(Integer.toString(command.length));
+            args.addAll(List.of(command));
+        }
+        return start("gitlet.TempRepository", args);
+    }
+
+    /** Runs each of the commands in ARGS, each given by its number of
+     *  words and then the words. */
+    public static void main(String... args) {
+        for (int i = 0; i < args.length; ) {
+            int n = Integer.parseInt(args[i]);
+            Main.run(Arrays.copyOfRange(args, i + 1, i + 1 + n));
+            i += 1 + n;
+        }
+    }
+
+    /** Runs the main method of the class MAIN with ARGS in another
+     *  process, returning what it printed. */
+    private String start(String main, List<String> args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin",
+                "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main);
+        command.addAll(args);
+        Process process = new ProcessBuilder(command).directory(_dir)
+            .redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        try {
+            process.waitFor();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IOException(excp);
+        }
+        return output;
+    }
+
+    /** Writes CONTENTS to the working file NAME, adds it and commits it
+     *  with MESSAGE, returning the ID of the new commit. */
+    String commit(String name, String contents, String message)
+        throws IOException {
+        write(name, contents);
+        return headIn(runAll(List.of(new String[] {"add", name},
+                new String[] {"commit", message}, new String[] {"log"})));
+    }
+
+    /** Returns the ID of the head commit. */
+    String head() throws IOException {
+        return headIn(run("log"));
+    }
+
+    /** Returns the ID of the first commit in LOG, the output of log. */
+    private static String headIn(String log) {
+        int start = log.indexOf("commit ") + "commit ".length();
+        return log.substring(start, start + Utils.UID_LENGTH);
+    }
+
+    /** Writes CONTENTS to the working file NAME, creating any directories
+     *  it needs. */
+    void write(String name, String contents) throws IOException {
+        File file = new File(_dir, name);
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), contents);
+    }
+
+    /** Cuts the last N bytes off the file NAME, relative to the working
+     *  directory. */
+    void truncate(String name, int n) throws IOException {
+        File file = new File(_dir, name);
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - n);
+        }
+    }
+
+    /** Returns true iff the working file NAME is a file. */
+    boolean isFile(String name) {
+        return new File(_dir, name).isFile();
+    }
+
+    /** Deletes the file NAME, relative to the working directory. */
+    void delete(String name) throws IOException {
+        Files.delete(new File(_dir, name).toPath());
+    }
+
+    /** Returns the contents of the working file NAME. */
+    String read(String name) throws IOException {
+        return Files.readString(new File(_dir, name).toPath());
+    }
+
+    /** Deletes the repository. */
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(_dir.toPath())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder())
+                     .toArray(Path[]::new)) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** The working directory of the repository. */
+    private final File _dir;
+}
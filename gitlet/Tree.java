@@ -0,0 +1,183 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** @author Riddhi Bagadiaa
+ * Tree objects. A tree lists the entries of one directory in name order:
+ * each file name maps to the ObjectStore ID of its contents, and each
+ * subdirectory name, followed by "/", maps to the ID of its own tree.
+ * A tree is stored under the SHA-1 of its serialized entries, so
+ * directories with identical contents share one tree, and two trees can
+ * be told apart, subdirectory by subdirectory, by their IDs alone.
+ *
+ * A tree is stored in the tree format of FORMAT: the number of entries
+ * as a varint and then, in order, each entry's name as a string and its
+ * raw ID, as written by Codec. */
+
+class Tree {
+
+    /** Separator of the components of a path. */
+    static final String SEPARATOR = "/";
+
+    /** Stores the trees for FILES, a map from '/'-separated paths to blob
+     *  IDs, and returns the ID of the root tree. */
+    static String write(Map<String, String> files) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        TreeMap<String, TreeMap<String, String>> subdirs = new TreeMap<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            String path = file.getKey();
+            int slash = path.indexOf(SEPARATOR);
+            if (slash == -1) {
+                entries.put(path, file.getValue());
+            } else {
+                subdirs.computeIfAbsent(path.substring(0, slash + 1),
+                    k -> new TreeMap<>())
+                    .put(path.substring(slash + 1), file.getValue());
+            }
+        }
+        for (Map.Entry<String, TreeMap<String, String>> subdir
+                 : subdirs.entrySet()) {
+            entries.put(subdir.getKey(), write(subdir.getValue()));
+        }
+        return ObjectStore.save(encode(entries));
+    }
+
+    /** Returns the entries of the tree with the given ID, which must not
+     *  be changed, reading them only if they are not in the cache. */
+    static SortedMap<String, String> read(String id) {
+        return CACHE.get(id, k ->
+                Collections.unmodifiableSortedMap(decode(ObjectStore.read(k))));
+    }
+
+    /** Returns the estimated size in bytes of the tree ENTRIES. */
+    private static long size(SortedMap<String, String> entries) {
+        long size = Cache.OVERHEAD;
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            size += Cache.OVERHEAD + Cache.size(e.getKey())
+                    + Cache.size(e.getValue());
+        }
+        return size;
+    }
+
+    /** Returns ENTRIES in the tree format. */
+    static byte[] encode(SortedMap<String, String> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            Codec.writeVarint(out, entries.size());
+            for (Map.Entry<String, String> e : entries.entrySet()) {
+                Codec.writeString(out, e.getKey());
+                Codec.writeID(out, e.getValue());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Returns the entries of the tree in the tree format in BYTES. */
+    static TreeMap<String, String> decode(byte[] bytes) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes))) {
+            if (in.readUnsignedByte() != FORMAT) {
+                throw new IOException("unknown tree format");
+            }
+            for (long n = Codec.readVarint(in); n > 0; n -= 1) {
+                String name = Codec.readString(in);
+                entries.put(name, Codec.readID(in));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return entries;
+    }
+
+    /** Returns every file under the tree with the given ID, as a map from
+     *  its path to the ID of its contents. */
+    static HashMap<String, String> flatten(String id) {
+        HashMap<String, String> files = new HashMap<>();
+        flatten(id, "", files);
+        return files;
+    }
+
+    /** Adds the files under the tree with the given ID to FILES, with
+     *  their paths starting with PREFIX. */
+    private static void flatten(String id, String prefix,
+                                Map<String, String> files) {
+        for (Map.Entry<String, String> entry : read(id).entrySet()) {
+            if (isTree(entry.getKey())) {
+                flatten(entry.getValue(), prefix + entry.getKey(), files);
+            } else {
+                files.put(prefix + entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /** Returns the files that differ between the trees with IDs FROM and
+     *  TO, each path mapped to its blob IDs in FROM and in TO, where null
+     *  means the file is absent. Either tree ID may be null for an empty
+     *  tree. Subtrees with equal IDs are skipped without being read. */
+    static TreeMap<String, String[]> diff(String from, String to) {
+        TreeMap<String, String[]> changes = new TreeMap<>();
+        diff(from, to, "", changes);
+        return changes;
+    }
+
+    /** Adds the differences between the trees with IDs FROM and TO to
+     *  CHANGES, with their paths starting with PREFIX. */
+    private static void diff(String from, String to, String prefix,
+                             TreeMap<String, String[]> changes) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        SortedMap<String, String> fromEntries = entries(from);
+        SortedMap<String, String> toEntries = entries(to);
+        TreeSet<String> names = new TreeSet<>(fromEntries.keySet());
+        names.addAll(toEntries.keySet());
+        for (String name : names) {
+            String fromID = fromEntries.get(name);
+            String toID = toEntries.get(name);
+            if (Objects.equals(fromID, toID)) {
+                continue;
+            }
+            if (isTree(name)) {
+                diff(fromID, toID, prefix + name, changes);
+            } else {
+                changes.put(prefix + name, new String[] {fromID, toID});
+            }
+        }
+    }
+
+    /** Returns the entries of the tree with the given ID, or none if ID
+     *  is null. */
+    private static SortedMap<String, String> entries(String id) {
+        if (id == null) {
+            return new TreeMap<>();
+        }
+        return read(id);
+    }
+
+    /** Returns true iff NAME names a subtree entry. */
+    private static boolean isTree(String name) {
+        return name.endsWith(SEPARATOR);
+    }
+
+    /** Version of the tree format written. */
+    private static final int FORMAT = 1;
+
+    /** Entries of trees read recently. */
+    private static final Cache<String, SortedMap<String, String>> CACHE =
+            new Cache<>("trees", 32 << 20, Tree::size);
+}
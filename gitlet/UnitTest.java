@@ -12,7 +12,11 @@ public class UnitTest {
     /** Run the JUnit tests in the loa package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        textui.runClasses(UnitTest.class);
+        textui.runClasses(UnitTest.class, CodecTest.class, DiffTest.class,
+                          Diff3Test.class, DeltaTest.class,
+                          CommitGraphTest.class, CommitIndexTest.class,
+                          WorkingTreeTest.class, MessageIndexTest.class,
+                          RepositoryFormatTest.class, AddTest.class);
     }
 
     /** A dummy test to avoid complaint. */
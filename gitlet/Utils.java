@@ -59,6 +59,31 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Returns the 20 raw bytes of the SHA-1 UID written as the
+     *  hexadecimal numeral HEX. */
+    static byte[] sha1Bytes(String hex) {
+        byte[] result = new byte[UID_LENGTH / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = (byte) (Character.digit(hex.charAt(2 * i), 16) << 4
+                | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return result;
+    }
+
+    /** Returns the hexadecimal numeral of the SHA-1 UID whose raw bytes
+     *  are BYTES. */
+    static String sha1Hex(byte[] bytes) {
+        char[] result = new char[2 * bytes.length];
+        for (int i = 0; i < bytes.length; i += 1) {
+            result[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /** The digits of hexadecimal numerals. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true
@@ -0,0 +1,119 @@
+package gitlet;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of how checkout and merge change the working directory when a
+ *  file takes the place of a directory or the reverse.
+ *  @author Riddhi Bagadiaa
+ */
+public class WorkingTreeTest {
+
+    /** Branch b tracks d/x and master a file d; switching between them
+     *  replaces the one with the other. */
+    @Test
+    public void swap() throws IOException {
+        try (TempRepository repo = swapRepository()) {
+            repo.run("checkout", "b");
+            assertEquals("x\n", repo.read("d/x"));
+            assertEquals("", repo.run("checkout", "master"));
+            assertEquals("d\n", repo.read("d"));
+            assertEquals("", repo.run("checkout", "b"));
+            assertEquals("x\n", repo.read("d/x"));
+        }
+    }
+
+    /** An untracked file in the directory a file is to replace stops
+     *  the checkout before anything changes. */
+    @Test
+    public void untrackedInDirectory() throws IOException {
+        try (TempRepository repo = swapRepository()) {
+            repo.run("checkout", "b");
+            String head = repo.head();
+            repo.write("d/u", "u\n");
+            assertEquals(UNTRACKED, repo.run("checkout", "master"));
+            assertEquals("x\n", repo.read("d/x"));
+            assertEquals("u\n", repo.read("d/u"));
+            assertEquals(head, repo.head());
+        }
+    }
+
+    /** An untracked file where a directory is to go stops the checkout
+     *  before anything changes. */
+    @Test
+    public void untrackedForDirectory() throws IOException {
+        try (TempRepository repo = swapRepository()) {
+            repo.run("rm", "d");
+            repo.run("commit", "no d");
+            String head = repo.head();
+            repo.write("d", "untracked\n");
+            assertEquals(UNTRACKED, repo.run("checkout", "b"));
+            assertEquals("untracked\n", repo.read("d"));
+            assertTrue(repo.isFile("f"));
+            assertEquals(head, repo.head());
+        }
+    }
+
+    /** Merging a branch that replaced directory d by a file d does the
+     *  same, and an untracked file in d stops the merge before anything
+     *  changes. */
+    @Test
+    public void mergeSwap() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.commit("d/x", "x\n", "c1");
+            repo.run("branch", "b");
+            repo.commit("f", "f\n", "c2");
+            repo.run("checkout", "b");
+            repo.run("rm", "d/x");
+            repo.commit("d", "d\n", "c3");
+            repo.run("checkout", "master");
+            String head = repo.head();
+            repo.write("d/u", "u\n");
+            assertEquals(UNTRACKED, repo.run("merge", "b"));
+            assertEquals("x\n", repo.read("d/x"));
+            assertEquals(head, repo.head());
+            repo.delete("d/u");
+            assertEquals("", repo.run("merge", "b"));
+            assertEquals("d\n", repo.read("d"));
+            assertEquals("f\n", repo.read("f"));
+        }
+    }
+
+    /** An untracked file where the directory of a file merged in has to
+     *  go stops the merge before anything changes. */
+    @Test
+    public void mergeUntrackedForDirectory() throws IOException {
+        try (TempRepository repo = new TempRepository()) {
+            repo.commit("f", "f\n", "c1");
+            repo.run("branch", "b");
+            repo.commit("f", "g\n", "c2");
+            repo.run("checkout", "b");
+            repo.commit("d/x", "x\n", "c3");
+            repo.run("checkout", "master");
+            String head = repo.head();
+            repo.write("d", "untracked\n");
+            assertEquals(UNTRACKED, repo.run("merge", "b"));
+            assertEquals("untracked\n", repo.read("d"));
+            assertEquals(head, repo.head());
+        }
+    }
+
+    /** Returns a repository whose branch b tracks d/x and whose current
+     *  branch, master, tracks a file d instead. */
+    private static TempRepository swapRepository() throws IOException {
+        TempRepository repo = new TempRepository();
+        repo.commit("f", "f\n", "c1");
+        repo.run("branch", "b");
+        repo.run("checkout", "b");
+        repo.commit("d/x", "x\n", "c2");
+        repo.run("checkout", "master");
+        repo.commit("d", "d\n", "c3");
+        return repo;
+    }
+
+    /** Message of a checkout stopped by an untracked file. */
+    private static final String UNTRACKED = "There is an untracked file in"
+        + " the way; delete it or add it first.\n";
+}